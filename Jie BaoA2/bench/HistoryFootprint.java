@@ -0,0 +1,63 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class HistoryFootprint
+ * Measures the retained heap of a ride history of N entries for each store:
+ * the original LinkedList, the indexed RideHistory and the columnar ColumnarRideHistory.
+ * Guests repeat (GUESTS distinct visitors), as they do in a real park.
+ *
+ * Usage: java -Xmx4g -cp <classes> HistoryFootprint [entries] [guests]
+ */
+public class HistoryFootprint {
+    public static void main(String[] args) {
+        int entries = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000_000;
+        int guests = (args.length > 1) ? Integer.parseInt(args[1]) : 100_000;
+        RideEventBus.setDefaultListener(RideEventListener.NO_OP);
+        System.out.println("Entries: " + entries + ", distinct guests: " + guests);
+
+        // Visitors are created per entry, as imports and loaders do
+        measure("LinkedList<Visitor>", entries, guests, new LinkedList<>());
+        measure("RideHistory", entries, guests, new RideHistory());
+        measure("ColumnarRideHistory", entries, guests, new ColumnarRideHistory());
+    }
+
+    private static void measure(String label, int entries, int guests, Object store) {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < entries; i++) {
+            int guest = i % guests;
+            Visitor visitor = new Visitor("Guest" + guest, 10 + guest % 60, "V" + guest,
+                    (guest % 4 == 0) ? "Gold" : "Standard", guest % 5);
+            add(store, visitor);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long after = usedHeap();
+        System.out.printf("%-20s %,8d ms  %,6d MB  %5.1f bytes/entry%n", label, millis,
+                (after - before) >> 20, (after - before) / (double) entries);
+        sizeOf(store);  // Keeps the store reachable until measured
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Object store, Visitor visitor) {
+        if (store instanceof HistoryStore history) {
+            history.add(visitor);
+        } else {
+            ((List<Visitor>) store).add(visitor);
+        }
+    }
+
+    private static int sizeOf(Object store) {
+        return (store instanceof HistoryStore history) ? history.size() : ((List<?>) store).size();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class HistorySortBench
+ * Times sortRideHistory's VisitorComparator order on N history entries:
+ * the original LinkedList.sort path against the keyed sort used by RideHistory
+ * and ColumnarRideHistory, and checks that all three give the same order.
+ *
+ * Usage: java -Xmx4g -cp <classes> HistorySortBench [entries] [rounds]
+ */
+public class HistorySortBench {
+    public static void main(String[] args) {
+        int entries = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        RideEventBus.setDefaultListener(RideEventListener.NO_OP);
+        List<Visitor> visitors = generate(entries);
+        System.out.println("Entries: " + entries + ", processors: " + Runtime.getRuntime().availableProcessors());
+
+        for (int round = 1; round <= rounds; round++) {
+            LinkedList<Visitor> list = new LinkedList<>(visitors);
+            long start = System.nanoTime();
+            list.sort(new VisitorComparator());
+            long listNanos = System.nanoTime() - start;
+
+            RideHistory history = new RideHistory(visitors);
+            start = System.nanoTime();
+            history.sort(new VisitorComparator());
+            long historyNanos = System.nanoTime() - start;
+
+            ColumnarRideHistory columnar = new ColumnarRideHistory();
+            columnar.ensureCapacity(entries);
+            for (Visitor visitor : visitors) {
+                columnar.add(visitor);
+            }
+            start = System.nanoTime();
+            columnar.sort(new VisitorComparator());
+            long columnarNanos = System.nanoTime() - start;
+
+            verify(list, history, columnar);
+            System.out.printf("Round %d: LinkedList.sort %,d ms | RideHistory keyed %,d ms | ColumnarRideHistory keyed %,d ms%n",
+                    round, listNanos / 1_000_000, historyNanos / 1_000_000, columnarNanos / 1_000_000);
+        }
+    }
+
+    // Mixed-case repeat guests, so many names compare equal ignoring case
+    private static List<Visitor> generate(int entries) {
+        Random random = new Random(42);
+        String[] levels = {"Gold", "Silver", "Standard", "Basic", "gold"};
+        List<Visitor> visitors = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            int guest = random.nextInt(Math.max(1, entries / 4));
+            String name = (random.nextBoolean() ? "guest " : "Guest ") + Integer.toString(guest, 36);
+            visitors.add(new Visitor(name, random.nextInt(80), "V" + i,
+                    levels[random.nextInt(levels.length)], random.nextInt(5)));
+        }
+        return visitors;
+    }
+
+    private static void verify(List<Visitor> expected, RideHistory history, ColumnarRideHistory columnar) {
+        int i = 0;
+        for (Visitor visitor : expected) {
+            Visitor columnarVisitor = columnar.get(i);
+            if (history.get(i) != visitor || !columnarVisitor.getId().equals(visitor.getId())) {
+                throw new IllegalStateException("Sort order differs at position " + i);
+            }
+            i++;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.time.Duration;
+
+/**
+ * Class ParkThroughputBench
+ * Aggregate boarding throughput of a Park with many rides cycling back to back
+ * (zero cycle interval). Every ride starts with a full queue; the bench reports
+ * riders boarded per second while the loops drain them.
+ * Compare core counts with -Djdk.virtualThreadScheduler.parallelism=N.
+ *
+ * Usage: java -cp <classes> ParkThroughputBench [rides] [visitorsPerRide] [maxRider]
+ */
+public class ParkThroughputBench {
+    public static void main(String[] args) throws InterruptedException {
+        int rides = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        int visitorsPerRide = (args.length > 1) ? Integer.parseInt(args[1]) : 100_000;
+        int maxRider = (args.length > 2) ? Integer.parseInt(args[2]) : 8;
+        RideEventBus.setDefaultListener(RideEventListener.NO_OP);
+
+        Employee operator = new Employee("Bench Operator", 30, "BOP", "Operator", "BOP001");
+        Park park = new Park("Bench Park", Duration.ZERO, Duration.ofMillis(1));
+        for (int r = 0; r < rides; r++) {
+            Ride ride = park.openRide("Ride " + r, operator, maxRider);
+            for (int i = 0; i < visitorsPerRide; i++) {
+                ride.addVisitorToQueue(new Visitor("V" + i, 30, r + ":" + i, "Standard"));
+            }
+        }
+        long expected = (long) rides * visitorsPerRide;
+        System.out.println("Rides: " + rides + ", visitors: " + expected + ", processors: "
+                + Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        park.start();
+        while (park.getTotalRiders() < expected) {
+            Thread.sleep(5);
+        }
+        long nanos = System.nanoTime() - start;
+        park.shutdown(Duration.ofSeconds(10));
+
+        System.out.printf("Boarded %,d riders in %,d cycles: %,d ms, %,.0f riders/s%n",
+                park.getTotalRiders(), park.getTotalCycles(), nanos / 1_000_000,
+                park.getTotalRiders() * 1e9 / nanos);
+    }
+}
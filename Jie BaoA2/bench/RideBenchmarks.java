@@ -0,0 +1,326 @@
+import benchmarks.RideWorkload;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class RideBenchmarks
+ * Workloads of the Ride hot paths, run by the JMH benchmarks in bench/benchmarks:
+ *   queue.*    addVisitorToQueue + removeVisitorFromQueue, FIFO and CONCURRENT queues
+ *   cycle.*    runOneCycle at several maxRider values (queue refilled before each cycle)
+ *   history.*  checkVisitorFromHistory on 1K and 1M entry histories
+ *   sort.*     sortRideHistory(VisitorComparator) on 1M shuffled entries
+ *   csv.*      exportRideHistory / importRideHistory / importRideHistoryParallel /
+ *              importRideHistoryLazy (into a LazyCsvHistory) at 1M rows
+ *   snapshot.* Ride.snapshot / Ride.restore of a ride with a 1M entry history
+ *   analytics.* RideAnalytics queries over 4 rides with 1M history entries in total
+ * Ride events go to RideEventListener.NO_OP so console I/O does not skew the results.
+ *
+ * Usage: gradle jmh (all benchmarks, with -prof gc), or gradle jmhJar and then
+ *        java -jar build/libs/*-jmh.jar "Cycle|Queue" -prof gc
+ */
+public class RideBenchmarks {
+    static {
+        RideEventBus.setDefaultListener(RideEventListener.NO_OP);
+    }
+
+    private RideBenchmarks() {
+    }
+
+    /**
+     * Workload for a JMH benchmark (see RideWorkload.create)
+     * @param param queue policy for queue.*, maxRider for cycle.*, history size or row count otherwise
+     */
+    public static RideWorkload workload(String name, String param) {
+        return switch (name) {
+            case "queue.addRemove" -> queueCase(QueuePolicy.valueOf(param));
+            case "cycle.runOneCycle" -> cycleCase(Integer.parseInt(param));
+            case "history.checkVisitorFromHistory" -> checkHistoryCase(Integer.parseInt(param));
+            case "sort.sortRideHistory" -> sortCase(Integer.parseInt(param));
+            case "csv.exportRideHistory" -> exportCase(Integer.parseInt(param));
+            case "csv.importRideHistory", "csv.importRideHistoryParallel", "csv.importRideHistoryLazy" ->
+                    importCase(Integer.parseInt(param), name.substring("csv.".length()));
+            case "snapshot.snapshot" -> snapshotCase(Integer.parseInt(param));
+            case "snapshot.restore" -> restoreCase(Integer.parseInt(param));
+            case "analytics.ridesPerVisitor", "analytics.ticketsByMembership" ->
+                    analyticsCase(Integer.parseInt(param), name.substring("analytics.".length()));
+            default -> throw new IllegalArgumentException("Unknown benchmark: " + name);
+        };
+    }
+
+    private static Employee operator() {
+        return new Employee("Bench Operator", 30, "BENCH", "Operator", "BENCH001");
+    }
+
+    private static Ride ride(int maxRider, QueuePolicy policy) {
+        Ride ride = new Ride("Bench Ride", operator(), maxRider, policy);
+        ride.setEventListener(RideEventListener.NO_OP);
+        return ride;
+    }
+
+    // Distinct visitors with repeating names and levels, as in a real history
+    private static List<Visitor> visitors(int count, long seed) {
+        Random random = new Random(seed);
+        String[] levels = {"Gold", "Silver", "Standard", "Basic"};
+        List<Visitor> visitors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            visitors.add(new Visitor("Guest" + random.nextInt(Math.max(1, count / 10)), 5 + random.nextInt(70),
+                    "BV" + i, levels[random.nextInt(levels.length)], random.nextInt(5)));
+        }
+        return visitors;
+    }
+
+    // One add and one remove per operation; the queue stays at one element
+    private static RideWorkload queueCase(QueuePolicy policy) {
+        return new RideWorkload() {
+            private Ride ride;
+            private Visitor visitor;
+
+            @Override
+            public void trialSetup() {
+                ride = ride(4, policy);
+                visitor = visitors(1, 1).get(0);
+            }
+
+            @Override
+            public Object invoke() {
+                ride.addVisitorToQueue(visitor);
+                ride.removeVisitorFromQueue();
+                return ride;
+            }
+        };
+    }
+
+    // Each operation queues maxRider visitors and runs one cycle that boards all of them
+    private static RideWorkload cycleCase(int maxRider) {
+        return new RideWorkload() {
+            private Ride ride;
+            private Visitor[] riders;
+
+            @Override
+            public void trialSetup() {
+                riders = visitors(maxRider, 2).toArray(new Visitor[0]);
+            }
+
+            @Override
+            public void iterationSetup() {
+                ride = ride(maxRider, QueuePolicy.FIFO);  // Fresh history each iteration
+            }
+
+            @Override
+            public Object invoke() throws Exception {
+                for (Visitor rider : riders) {
+                    ride.addVisitorToQueue(rider);
+                }
+                ride.runOneCycle();
+                return ride;
+            }
+        };
+    }
+
+    // Alternates lookups of visitors that are and are not in the history
+    private static RideWorkload checkHistoryCase(int size) {
+        return new RideWorkload() {
+            private Ride ride;
+            private Visitor[] probes;
+            private int next;
+
+            @Override
+            public void trialSetup() {
+                List<Visitor> history = visitors(size, 3);
+                ride = new Ride("Bench Ride", operator(), 4, null, history);
+                ride.setEventListener(RideEventListener.NO_OP);
+                Random random = new Random(4);
+                probes = new Visitor[1024];
+                for (int i = 0; i < probes.length; i++) {
+                    probes[i] = (i % 2 == 0) ? history.get(random.nextInt(size))
+                            : new Visitor("Nobody", 30, "MISSING" + i, "Basic");
+                }
+            }
+
+            @Override
+            public Object invoke() {
+                ride.checkVisitorFromHistory(probes[next++ & (probes.length - 1)]);
+                return ride;
+            }
+        };
+    }
+
+    // Sorts a freshly shuffled history each invocation (building it is not timed)
+    private static RideWorkload sortCase(int size) {
+        return new RideWorkload() {
+            private List<Visitor> shuffled;
+            private Ride ride;
+            private final VisitorComparator comparator = new VisitorComparator();
+
+            @Override
+            public void trialSetup() {
+                shuffled = visitors(size, 5);
+                Collections.shuffle(shuffled, new Random(6));
+            }
+
+            @Override
+            public void invocationSetup() {
+                ride = new Ride("Bench Ride", operator(), 4, null, shuffled);
+                ride.setEventListener(RideEventListener.NO_OP);
+            }
+
+            @Override
+            public Object invoke() {
+                ride.sortRideHistory(comparator);
+                return ride;
+            }
+        };
+    }
+
+    private static RideWorkload exportCase(int rows) {
+        return new RideWorkload() {
+            private Ride ride;
+            private Path file;
+
+            @Override
+            public void trialSetup() throws Exception {
+                ride = new Ride("Bench Ride", operator(), 4, null, visitors(rows, 7));
+                ride.setEventListener(RideEventListener.NO_OP);
+                file = Files.createTempFile("ride-bench-export", ".csv");
+            }
+
+            @Override
+            public Object invoke() throws Exception {
+                ride.exportRideHistory(file.toString());
+                return file;
+            }
+
+            @Override
+            public void trialTearDown() throws Exception {
+                Files.deleteIfExists(file);
+            }
+        };
+    }
+
+    // Imports into a fresh ride each invocation (creating it is not timed)
+    private static RideWorkload importCase(int rows, String method) {
+        return new RideWorkload() {
+            private Path file;
+            private Ride ride;
+
+            @Override
+            public void trialSetup() throws Exception {
+                file = Files.createTempFile("ride-bench-import", ".csv");
+                Ride source = new Ride("Bench Ride", operator(), 4, null, visitors(rows, 8));
+                source.setEventListener(RideEventListener.NO_OP);
+                source.exportRideHistory(file.toString());
+            }
+
+            @Override
+            public void invocationSetup() {
+                if (method.equals("importRideHistoryLazy")) {
+                    ride = Ride.withHistoryStore("Bench Ride", operator(), 4, QueuePolicy.FIFO, new LazyCsvHistory());
+                    ride.setEventListener(RideEventListener.NO_OP);
+                } else {
+                    ride = ride(4, QueuePolicy.FIFO);
+                }
+            }
+
+            @Override
+            public Object invoke() throws Exception {
+                String path = file.toString();
+                return switch (method) {
+                    case "importRideHistoryParallel" -> ride.importRideHistoryParallel(path);
+                    case "importRideHistoryLazy" -> ride.importRideHistoryLazy(path);
+                    default -> ride.importRideHistory(path);
+                };
+            }
+
+            @Override
+            public void trialTearDown() {
+                new File(file.toString()).delete();
+            }
+        };
+    }
+
+    private static RideWorkload snapshotCase(int rows) {
+        return new RideWorkload() {
+            private Ride ride;
+            private Path file;
+
+            @Override
+            public void trialSetup() throws Exception {
+                ride = new Ride("Bench Ride", operator(), 4, null, visitors(rows, 9));
+                ride.setEventListener(RideEventListener.NO_OP);
+                file = Files.createTempFile("ride-bench-snapshot", ".rsnp");
+            }
+
+            @Override
+            public Object invoke() throws Exception {
+                ride.snapshot(file);
+                return file;
+            }
+
+            @Override
+            public void trialTearDown() throws Exception {
+                Files.deleteIfExists(file);
+            }
+        };
+    }
+
+    // Restores into a fresh ride each invocation (creating it is not timed)
+    private static RideWorkload restoreCase(int rows) {
+        return new RideWorkload() {
+            private Path file;
+            private Ride ride;
+
+            @Override
+            public void trialSetup() throws Exception {
+                file = Files.createTempFile("ride-bench-restore", ".rsnp");
+                Ride source = new Ride("Bench Ride", operator(), 4, null, visitors(rows, 10));
+                source.setEventListener(RideEventListener.NO_OP);
+                source.snapshot(file);
+            }
+
+            @Override
+            public void invocationSetup() {
+                ride = ride(4, QueuePolicy.FIFO);
+            }
+
+            @Override
+            public Object invoke() throws Exception {
+                ride.restore(file);
+                return ride;
+            }
+
+            @Override
+            public void trialTearDown() throws Exception {
+                Files.deleteIfExists(file);
+            }
+        };
+    }
+
+    // 4 rides sharing the same guests (the same ids ride every ride)
+    private static RideWorkload analyticsCase(int rows, String query) {
+        return new RideWorkload() {
+            private RideAnalytics analytics;
+
+            @Override
+            public void trialSetup() {
+                List<Ride> rides = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    Ride ride = new Ride("Bench Ride " + i, operator(), 4, null, visitors(rows / 4, 11 + i));
+                    ride.setEventListener(RideEventListener.NO_OP);
+                    rides.add(ride);
+                }
+                analytics = new RideAnalytics(rides);
+            }
+
+            @Override
+            public Object invoke() {
+                return query.equals("ridesPerVisitor") ? analytics.ridesPerVisitor() : analytics.ticketsByMembership();
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+import java.time.Duration;
+
+/**
+ * Class SimulationBench
+ * Simulates a 12-hour park day with several million visitors and reports the run time.
+ * Running it twice with the same seed must print the same figures.
+ *
+ * Usage: java -Xmx4g -cp <classes> SimulationBench [rides] [visitorsPerRidePerHour] [seed]
+ */
+public class SimulationBench {
+    public static void main(String[] args) {
+        int rides = (args.length > 0) ? Integer.parseInt(args[0]) : 60;
+        double perHour = (args.length > 1) ? Double.parseDouble(args[1]) : 4_000;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 2024;
+        RideEventBus.setDefaultListener(RideEventListener.NO_OP);
+
+        for (int run = 1; run <= 2; run++) {
+            ParkSimulation simulation = new ParkSimulation(seed, Duration.ofHours(12));
+            for (int r = 0; r < rides; r++) {
+                Employee morning = new Employee("Morning " + r, 30, "M" + r, "Operator", "OPM" + r);
+                Employee evening = new Employee("Evening " + r, 35, "E" + r, "Operator", "OPE" + r);
+                Ride ride = Ride.withHistoryStore("Ride " + r, null, 60 + 10 * (r % 5), QueuePolicy.FIFO,
+                        new ColumnarRideHistory());
+                simulation.addRide(ride, Duration.ofSeconds(50 + 5 * (r % 4)), ArrivalProcess.poisson(perHour));
+                simulation.addShift(ride.getRideName(), morning, Duration.ZERO, Duration.ofHours(6));
+                simulation.addShift(ride.getRideName(), evening, Duration.ofHours(6).plusMinutes(10), Duration.ofHours(12));
+            }
+            SimulationReport report = simulation.run();
+            Histogram waits = report.getParkWaitTimes();
+            System.out.printf("Run %d: %,d arrivals, %,d riders, %,d events, %,d ms wall, park wait p50=%s p99=%s%n",
+                    run, report.getTotalArrivals(), report.getTotalRiders(), report.getEventsProcessed(),
+                    report.getWallNanos() / 1_000_000, SimulationReport.minutes(waits.getPercentile(50)),
+                    SimulationReport.minutes(waits.getPercentile(99)));
+            System.out.println("  " + report.getRides().get(0));
+        }
+    }
+}
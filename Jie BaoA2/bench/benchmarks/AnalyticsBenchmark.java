@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class AnalyticsBenchmark
+ * RideAnalytics queries over 4 rides whose histories hold rows entries in total
+ */
+@State(Scope.Thread)
+public class AnalyticsBenchmark {
+    @Param({"ridesPerVisitor", "ticketsByMembership"})
+    public String query;
+
+    @Param({"1000000"})
+    public String rows;
+
+    private RideWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = RideWorkload.create("analytics." + query, rows);
+        workload.trialSetup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.trialTearDown();
+    }
+
+    @Benchmark
+    public Object query() throws Exception {
+        return workload.invoke();
+    }
+}
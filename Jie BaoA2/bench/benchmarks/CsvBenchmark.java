@@ -0,0 +1,72 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class CsvBenchmark
+ * exportRideHistory to a temporary file, and the three imports of an exported file,
+ * each into a ride created before the invocation
+ */
+public class CsvBenchmark {
+    @State(Scope.Thread)
+    public static class Export {
+        @Param({"1000000"})
+        public String rows;
+
+        RideWorkload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = RideWorkload.create("csv.exportRideHistory", rows);
+            workload.trialSetup();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workload.trialTearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Import {
+        @Param({"importRideHistory", "importRideHistoryParallel", "importRideHistoryLazy"})
+        public String method;
+
+        @Param({"1000000"})
+        public String rows;
+
+        RideWorkload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = RideWorkload.create("csv." + method, rows);
+            workload.trialSetup();
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation() throws Exception {
+            workload.invocationSetup();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workload.trialTearDown();
+        }
+    }
+
+    @Benchmark
+    public Object exportRideHistory(Export state) throws Exception {
+        return state.workload.invoke();
+    }
+
+    @Benchmark
+    public Object importRideHistory(Import state) throws Exception {
+        return state.workload.invoke();
+    }
+}
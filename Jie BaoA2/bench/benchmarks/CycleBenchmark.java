@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class CycleBenchmark
+ * Queues maxRider visitors and runs one cycle that boards all of them.
+ * Each iteration starts with a new ride, so the history only grows within an iteration.
+ */
+@State(Scope.Thread)
+public class CycleBenchmark {
+    @Param({"1", "4", "16", "64"})
+    public String maxRider;
+
+    private RideWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = RideWorkload.create("cycle.runOneCycle", maxRider);
+        workload.trialSetup();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws Exception {
+        workload.iterationSetup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.trialTearDown();
+    }
+
+    @Benchmark
+    public Object runOneCycle() throws Exception {
+        return workload.invoke();
+    }
+}
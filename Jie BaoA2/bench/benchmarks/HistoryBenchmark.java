@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class HistoryBenchmark
+ * checkVisitorFromHistory, alternating visitors that are and are not in the history
+ */
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    @Param({"1000", "1000000"})
+    public String size;
+
+    private RideWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = RideWorkload.create("history.checkVisitorFromHistory", size);
+        workload.trialSetup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.trialTearDown();
+    }
+
+    @Benchmark
+    public Object checkVisitorFromHistory() throws Exception {
+        return workload.invoke();
+    }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class QueueBenchmark
+ * addVisitorToQueue followed by removeVisitorFromQueue; the queue stays at one visitor
+ */
+@State(Scope.Thread)
+public class QueueBenchmark {
+    @Param({"FIFO", "CONCURRENT"})
+    public String policy;
+
+    private RideWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = RideWorkload.create("queue.addRemove", policy);
+        workload.trialSetup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.trialTearDown();
+    }
+
+    @Benchmark
+    public Object addRemove() throws Exception {
+        return workload.invoke();
+    }
+}
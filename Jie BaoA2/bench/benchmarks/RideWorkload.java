@@ -0,0 +1,39 @@
+package benchmarks;
+
+/**
+ * Class RideWorkload
+ * One benchmarked operation and its untimed setup, as built by RideBenchmarks.
+ * The JMH benchmarks in this package run workloads instead of calling Ride directly:
+ * JMH rejects benchmark classes in the unnamed package, and a named package cannot
+ * refer to Ride and the rest of the application, which live in the unnamed package.
+ */
+public abstract class RideWorkload {
+    // Once before warmup (JMH Level.Trial)
+    public void trialSetup() throws Exception {
+    }
+
+    // Before every warmup and measured iteration (JMH Level.Iteration)
+    public void iterationSetup() throws Exception {
+    }
+
+    // Before every invocation, not timed (JMH Level.Invocation)
+    public void invocationSetup() throws Exception {
+    }
+
+    // Once after measurement
+    public void trialTearDown() throws Exception {
+    }
+
+    // One operation; benchmarks return the result so JMH's blackhole consumes it
+    public abstract Object invoke() throws Exception;
+
+    /**
+     * Workload built by RideBenchmarks.workload
+     * @param name  benchmark name, e.g. "queue.addRemove"
+     * @param param its parameter (queue policy, maxRider, history size or row count)
+     */
+    public static RideWorkload create(String name, String param) throws ReflectiveOperationException {
+        Class<?> factory = Class.forName("RideBenchmarks");
+        return (RideWorkload) factory.getMethod("workload", String.class, String.class).invoke(null, name, param);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class SnapshotBenchmark
+ * Ride.snapshot of a ride with a large history, and Ride.restore of that snapshot
+ * into a ride created before the invocation
+ */
+public class SnapshotBenchmark {
+    @State(Scope.Thread)
+    public static class Snapshot {
+        @Param({"1000000"})
+        public String rows;
+
+        RideWorkload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = RideWorkload.create("snapshot.snapshot", rows);
+            workload.trialSetup();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workload.trialTearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Restore {
+        @Param({"1000000"})
+        public String rows;
+
+        RideWorkload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            workload = RideWorkload.create("snapshot.restore", rows);
+            workload.trialSetup();
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation() throws Exception {
+            workload.invocationSetup();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workload.trialTearDown();
+        }
+    }
+
+    @Benchmark
+    public Object snapshot(Snapshot state) throws Exception {
+        return state.workload.invoke();
+    }
+
+    @Benchmark
+    public Object restore(Restore state) throws Exception {
+        return state.workload.invoke();
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Class SortBenchmark
+ * sortRideHistory(VisitorComparator) on a shuffled history, rebuilt before every invocation.
+ * An invocation takes far longer than the per-invocation setup overhead JMH warns about.
+ */
+@State(Scope.Thread)
+public class SortBenchmark {
+    @Param({"1000000"})
+    public String size;
+
+    private RideWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = RideWorkload.create("sort.sortRideHistory", size);
+        workload.trialSetup();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        workload.invocationSetup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.trialTearDown();
+    }
+
+    @Benchmark
+    public Object sortRideHistory() throws Exception {
+        return workload.invoke();
+    }
+}
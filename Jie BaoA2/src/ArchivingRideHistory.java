@@ -0,0 +1,578 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Bounded-memory history store for long-running rides
+ * The most recent riders are kept in an in-memory ring of fixed capacity. When the ring is
+ * full, its oldest segmentSize entries are written to an append-only segment file in the
+ * archive directory (BinaryHistoryFormat, so a segment can also be opened with
+ * importRideHistoryBinary) and dropped from memory.
+ *
+ * size, get, iteration and contains answer over the whole history, reading archived
+ * segments when needed; one decoded segment is cached at a time. Each segment has a side
+ * file with a sorted hash index and the byte offset of every dictionary entry, so contains
+ * is a binary search per segment and decodes only the records whose hash matches, straight
+ * from the mapped segment. The most recently used MAX_OPEN_SEGMENTS segments stay mapped.
+ * Heap use is bounded by the ring and the segment cache (plus a few bytes per segment),
+ * however many riders the ride has had.
+ *
+ * add never fails: if a segment cannot be written, the ring grows to keep the visitor, the
+ * failure is kept for getArchiveFailure, and archiving is retried when the ring is full
+ * again. Memory is only bounded again once archiving succeeds.
+ *
+ * Existing segments in the directory are kept as the start of the history, so a ride
+ * restarted with the same directory still sees its archived riders (entries still in the
+ * ring when the JVM stopped are not archived; call archive() before shutting down).
+ * The history cannot be sorted: sort throws UnsupportedOperationException.
+ * Other I/O failures are thrown as UncheckedIOException.
+ */
+public class ArchivingRideHistory implements HistoryStore {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".rhbf";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final long HASH_BITS = 0xFFFFFFFF00000000L;  // Index key = upper hash bits | record number
+    static final int MAX_OPEN_SEGMENTS = 1024;  // Segments kept mapped (two mappings each)
+
+    /** One archived segment: its position in the history */
+    private static final class Segment {
+        final int number;
+        final long start;   // History index of its first visitor
+        final int count;
+
+        Segment(int number, long start, int count) {
+            this.number = number;
+            this.start = start;
+            this.count = count;
+        }
+    }
+
+    /** Mappings of an open segment: the segment file and its side file */
+    private static final class Mapped {
+        final ByteBuffer data;
+        final LongBuffer keys;      // Sorted hash index
+        final IntBuffer offsets;    // BinaryHistoryFormat.dictionaryOffsets
+
+        Mapped(ByteBuffer data, ByteBuffer side, int count) {
+            this.data = data;
+            this.keys = side.slice(0, count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            this.offsets = side.slice(count * Long.BYTES, side.limit() - count * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+
+    private final Path directory;
+    private final int memoryCapacity;
+    private final int segmentSize;
+    private Visitor[] ring;  // Grows past memoryCapacity only while archiving fails
+    private int ringHead;    // Slot of the oldest in-memory visitor
+    private int ringSize;
+    private final Map<Visitor, Integer> ringIndex = new HashMap<>();  // In-memory visitors with an id -> count
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Segment, Mapped> open = new LinkedHashMap<>(16, 0.75f, true);  // Least recently used first
+    private long archived;  // Visitors in segments
+    private int cachedSegment = -1;
+    private List<Visitor> cachedVisitors;
+    private IOException archiveFailure;
+    private long failedArchives;
+    private int forcedSegments;  // Leading segments known to be on storage (forceArchived)
+
+    // Constructor archiving a quarter of the ring at a time
+    public ArchivingRideHistory(Path directory, int memoryCapacity) {
+        this(directory, memoryCapacity, Math.max(1, memoryCapacity / 4));
+    }
+
+    /**
+     * Constructor with the archive directory and memory bounds
+     * @param memoryCapacity most visitors kept in memory
+     * @param segmentSize    visitors written per segment file (1 to memoryCapacity)
+     */
+    public ArchivingRideHistory(Path directory, int memoryCapacity, int segmentSize) {
+        if (directory == null || memoryCapacity < 1 || segmentSize < 1 || segmentSize > memoryCapacity) {
+            throw new IllegalArgumentException("Need a directory and 1 <= segmentSize <= memoryCapacity");
+        }
+        this.directory = directory;
+        this.memoryCapacity = memoryCapacity;
+        this.segmentSize = segmentSize;
+        this.ring = new Visitor[memoryCapacity];
+        try {
+            Files.createDirectories(directory);
+            openExistingSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open history archive " + directory, e);
+        }
+    }
+
+    @Override
+    public boolean add(Visitor visitor) {
+        if (ringSize == ring.length) {
+            makeRoom();
+        }
+        ring[(ringHead + ringSize) % ring.length] = visitor;
+        ringSize++;
+        if (visitor.getId() != null) {
+            ringIndex.merge(visitor, 1, Integer::sum);
+        }
+        return true;
+    }
+
+    // Archives down to memoryCapacity - segmentSize; if that fails the ring grows instead
+    private void makeRoom() {
+        try {
+            archiveOldest(ringSize - memoryCapacity + segmentSize);
+        } catch (UncheckedIOException e) {
+            archiveFailure = e.getCause();
+            failedArchives++;
+            resize(ring.length * 2);
+        }
+    }
+
+    // Memory use is fixed, nothing to reserve
+    @Override
+    public void ensureCapacity(int additional) {
+    }
+
+    @Override
+    public boolean contains(Visitor visitor) {
+        if (visitor == null) {
+            return false;
+        }
+        if (visitor.getId() == null) {
+            // Visitor.equals cannot compare a null id, and such visitors are not in ringIndex
+            for (int i = 0; i < ringSize; i++) {
+                if (sameVisitor(visitor, ring[(ringHead + i) % ring.length])) {
+                    return true;
+                }
+            }
+        } else if (ringIndex.containsKey(visitor)) {
+            return true;
+        }
+        long hash = hash(visitor) & HASH_BITS;
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            Mapped mapped = mapped(segments.get(s));
+            LongBuffer keys = mapped.keys;
+            for (int i = lowerBound(keys, hash); i < keys.limit() && (keys.get(i) & HASH_BITS) == hash; i++) {
+                if (sameVisitor(visitor, archivedVisitor(s, mapped, (int) keys.get(i)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Same result as RideHistory.contains: equal id and name, where null equals null
+    private static boolean sameVisitor(Visitor probe, Visitor entry) {
+        return Objects.equals(probe.getId(), entry.getId()) && Objects.equals(probe.getName(), entry.getName());
+    }
+
+    // First position in a sorted index whose key is >= target
+    private static int lowerBound(LongBuffer index, long target) {
+        int low = 0;
+        int high = index.limit();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index.get(middle) < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // One record of a segment, from the cache if that segment is decoded
+    private Visitor archivedVisitor(int s, Mapped mapped, int record) {
+        if (cachedSegment == s) {
+            return cachedVisitors.get(record);
+        }
+        try {
+            return BinaryHistoryFormat.readRecord(mapped.data, mapped.offsets, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read history segment " + segmentPath(segments.get(s).number), e);
+        }
+    }
+
+    // Mappings of a segment, opening them if needed and dropping the least recently used
+    // beyond MAX_OPEN_SEGMENTS (a mapping is released when it is garbage collected)
+    private Mapped mapped(Segment segment) {
+        Mapped mapped = open.get(segment);
+        if (mapped == null) {
+            try {
+                mapped = new Mapped(map(segmentPath(segment.number)), map(indexPath(segment.number)), segment.count);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open history segment " + segmentPath(segment.number), e);
+            }
+            keepOpen(segment, mapped);
+        }
+        return mapped;
+    }
+
+    private void keepOpen(Segment segment, Mapped mapped) {
+        open.put(segment, mapped);
+        if (open.size() > MAX_OPEN_SEGMENTS) {
+            Iterator<Mapped> eldest = open.values().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public Visitor get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+        }
+        if (index >= archived) {
+            return ring[(int) ((ringHead + (index - archived)) % ring.length)];
+        }
+        int s = segmentOf(index);
+        return segmentVisitors(s).get((int) (index - segments.get(s).start));
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, archived + ringSize);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return archived == 0 && ringSize == 0;
+    }
+
+    // Empties the ring and deletes every segment file
+    @Override
+    public void clear() {
+        clearRing();
+        open.clear();
+        try {
+            for (Segment segment : segments) {
+                Files.deleteIfExists(segmentPath(segment.number));
+                Files.deleteIfExists(indexPath(segment.number));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete history archive segments in " + directory, e);
+        }
+        segments.clear();
+        forcedSegments = 0;
+        archived = 0;
+        cachedSegment = -1;
+        cachedVisitors = null;
+    }
+
+    // Empties the ring only: archived segments are already on disk and stay the start of the history
+    @Override
+    public long resetForRecovery() {
+        clearRing();
+        return archived;
+    }
+
+    // Syncs segments written since the last call, so a journal checkpoint can refer to them
+    @Override
+    public long forceArchived() {
+        try {
+            for (; forcedSegments < segments.size(); forcedSegments++) {
+                int number = segments.get(forcedSegments).number;
+                force(segmentPath(number));
+                force(indexPath(number));
+            }
+            forceDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync history archive " + directory, e);
+        }
+        return archived;
+    }
+
+    private static void force(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Skipped where a directory cannot be opened as a file (Windows), as in RideJournal
+    private void forceDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private void clearRing() {
+        if (ring.length > memoryCapacity) {
+            ring = new Visitor[memoryCapacity];
+        } else {
+            Arrays.fill(ring, null);
+        }
+        ringHead = 0;
+        ringSize = 0;
+        ringIndex.clear();
+    }
+
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        throw new UnsupportedOperationException("An archived history cannot be reordered; use topK or page instead");
+    }
+
+    // Archived segments first, then the ring; reads one segment at a time
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<>() {
+            private long next;
+            private final long end = archived + ringSize;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                return get((int) next++);
+            }
+        };
+    }
+
+    /**
+     * Writes every in-memory visitor to a segment (e.g. before shutting down)
+     * @throws UncheckedIOException if the segment cannot be written; the visitors stay in memory
+     */
+    public void archive() {
+        if (ringSize > 0) {
+            archiveOldest(ringSize);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    public int getInMemorySize() {
+        return ringSize;
+    }
+
+    public long getArchivedSize() {
+        return archived;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    // Why the last archive attempt failed, or null once archiving succeeds
+    public IOException getArchiveFailure() {
+        return archiveFailure;
+    }
+
+    // Archive attempts by add that failed and grew the ring instead
+    public long getFailedArchiveCount() {
+        return failedArchives;
+    }
+
+    // Moves the oldest count in-memory visitors to a new segment file
+    private void archiveOldest(int count) {
+        List<Visitor> oldest = new AbstractList<>() {
+            @Override
+            public Visitor get(int index) {
+                return ring[(ringHead + index) % ring.length];
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+        int number = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).number + 1;
+        try {
+            // The segment move is the commit point: a side file left by a failed attempt is rewritten
+            Path temporary = segmentPath(number).resolveSibling(segmentPath(number).getFileName() + ".tmp");
+            BinaryHistoryFormat.write(temporary, oldest);
+            ByteBuffer data = map(temporary);  // The mapping follows the file through the move
+            writeIndex(number, oldest, data);
+            Files.move(temporary, segmentPath(number), StandardCopyOption.ATOMIC_MOVE);
+            Segment segment = new Segment(number, archived, count);
+            segments.add(segment);
+            keepOpen(segment, new Mapped(data, map(indexPath(number)), count));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot archive ride history to " + directory, e);
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = (ringHead + i) % ring.length;
+            if (ring[slot].getId() != null) {
+                ringIndex.computeIfPresent(ring[slot], (visitor, n) -> (n == 1) ? null : n - 1);
+            }
+            ring[slot] = null;
+        }
+        ringHead = (ringHead + count) % ring.length;
+        ringSize -= count;
+        archived += count;
+        archiveFailure = null;
+        if (ring.length > memoryCapacity && ringSize <= memoryCapacity) {
+            resize(memoryCapacity);
+        }
+    }
+
+    // Moves the in-memory visitors, oldest first, into a ring of the given capacity
+    private void resize(int capacity) {
+        Visitor[] resized = new Visitor[capacity];
+        for (int i = 0; i < ringSize; i++) {
+            resized[i] = ring[(ringHead + i) % ring.length];
+        }
+        ring = resized;
+        ringHead = 0;
+    }
+
+    private void openExistingSegments() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of our segments
+                }
+            }
+        }
+        numbers.sort(null);
+        for (int number : numbers) {
+            int[] header = header(segmentPath(number));  // dictSize, recordCount
+            int count = header[1];
+            long sideSize = (long) count * Long.BYTES + (long) (header[0] + 1) * Integer.BYTES;
+            if (!Files.exists(indexPath(number)) || Files.size(indexPath(number)) != sideSize) {
+                // Missing, or written by an older version without the dictionary offsets
+                List<Visitor> visitors = new ArrayList<>(count);
+                BinaryHistoryFormat.read(segmentPath(number), visitors::add);
+                writeIndex(number, visitors, map(segmentPath(number)));
+            }
+            segments.add(new Segment(number, archived, count));
+            archived += count;
+        }
+    }
+
+    // dictSize and recordCount from a segment header (magic, version, flags, dictSize, recordCount)
+    private static int[] header(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Fill the header
+            }
+            header.flip();
+            if (header.remaining() < 16 || header.getInt(0) != BinaryHistoryFormat.MAGIC) {
+                throw new IOException("Not a history segment: " + segment);
+            }
+            return new int[]{header.getInt(8), header.getInt(12)};
+        }
+    }
+
+    // Decoded visitors of a segment, keeping the most recently used one cached
+    private List<Visitor> segmentVisitors(int s) {
+        if (cachedSegment != s) {
+            Segment segment = segments.get(s);
+            List<Visitor> visitors = new ArrayList<>(segment.count);
+            try {
+                BinaryHistoryFormat.read(segmentPath(segment.number), visitors::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read history segment " + segmentPath(segment.number), e);
+            }
+            cachedVisitors = visitors;
+            cachedSegment = s;
+        }
+        return cachedVisitors;
+    }
+
+    // Segment holding an archived history index (binary search on segment starts)
+    private int segmentOf(long index) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).start <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private Path indexPath(int number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, INDEX_SUFFIX));
+    }
+
+    // Side file, little-endian: one long per record, (upper 32 hash bits | record number), sorted,
+    // then the segment's dictionary offsets (dictSize + 1 ints)
+    private void writeIndex(int number, List<Visitor> visitors, ByteBuffer data) throws IOException {
+        long[] keys = new long[visitors.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (hash(visitors.get(i)) & HASH_BITS) | i;
+        }
+        Arrays.sort(keys);
+        int[] offsets = BinaryHistoryFormat.dictionaryOffsets(data);
+        ByteBuffer bytes = ByteBuffer.allocate(keys.length * Long.BYTES + offsets.length * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asLongBuffer().put(keys);
+        bytes.position(keys.length * Long.BYTES);
+        bytes.asIntBuffer().put(offsets);
+        bytes.position(0);
+        try (FileChannel channel = FileChannel.open(indexPath(number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    // The mapping stays valid after the channel is closed
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // 64-bit hash of the fields Visitor.equals compares (id and name), murmur3 finalizer
+    private static long hash(Visitor visitor) {
+        long h = ((long) Objects.hashCode(visitor.getId()) << 32) ^ (Objects.hashCode(visitor.getName()) & 0xFFFFFFFFL);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
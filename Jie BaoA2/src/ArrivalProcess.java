@@ -0,0 +1,74 @@
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Visitor arrival process for one ride in a ParkSimulation
+ * Times are milliseconds since the park opened. Implementations must draw all randomness
+ * from the given generator so that a simulation is reproducible from its seed.
+ */
+@FunctionalInterface
+public interface ArrivalProcess {
+    /** Returned by nextArrival when no more visitors arrive */
+    long NO_MORE_ARRIVALS = Long.MAX_VALUE;
+
+    /**
+     * Time of the next arrival after the previous one
+     * @param now    time of the previous arrival (0 at opening)
+     * @param random the ride's seeded generator
+     * @return arrival time (>= now) or NO_MORE_ARRIVALS
+     */
+    long nextArrival(long now, SplittableRandom random);
+
+    /** Poisson arrivals: exponentially distributed gaps with the given mean rate */
+    static ArrivalProcess poisson(double visitorsPerHour) {
+        if (!(visitorsPerHour > 0)) {
+            throw new IllegalArgumentException("Arrival rate must be positive: " + visitorsPerHour);
+        }
+        double meanGapMillis = 3_600_000.0 / visitorsPerHour;
+        return (now, random) -> now + Math.round(-Math.log(1.0 - random.nextDouble()) * meanGapMillis);
+    }
+
+    /** One visitor every interval, starting at opening */
+    static ArrivalProcess fixedInterval(Duration interval) {
+        long gap = interval.toMillis();
+        if (gap <= 0) {
+            throw new IllegalArgumentException("Arrival interval must be positive: " + interval);
+        }
+        return (now, random) -> now + gap;
+    }
+
+    /**
+     * Poisson arrivals whose rate changes every hour (e.g. a midday peak)
+     * Uses thinning: candidates are drawn at the peak rate and kept with probability
+     * rate(t) / peak. After the last hour no more visitors arrive.
+     * @param visitorsPerHour rate for hour 0, 1, 2, ... of the day
+     */
+    static ArrivalProcess hourly(double... visitorsPerHour) {
+        double peak = 0;
+        for (double rate : visitorsPerHour) {
+            if (rate < 0) {
+                throw new IllegalArgumentException("Arrival rate cannot be negative: " + rate);
+            }
+            peak = Math.max(peak, rate);
+        }
+        if (peak == 0) {
+            return (now, random) -> NO_MORE_ARRIVALS;
+        }
+        double[] rates = visitorsPerHour.clone();
+        double peakRate = peak;
+        double meanGapMillis = 3_600_000.0 / peak;
+        long end = rates.length * 3_600_000L;
+        return (now, random) -> {
+            double time = now;
+            while (true) {
+                time += -Math.log(1.0 - random.nextDouble()) * meanGapMillis;
+                if (time >= end) {
+                    return NO_MORE_ARRIVALS;
+                }
+                if (random.nextDouble() * peakRate < rates[(int) (time / 3_600_000L)]) {
+                    return Math.round(time);
+                }
+            }
+        };
+    }
+}
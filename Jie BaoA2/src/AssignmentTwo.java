@@ -4,7 +4,9 @@ import exceptions.FileOperationException;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Main demonstration class for the Theme Park Management System
@@ -16,6 +18,9 @@ public class AssignmentTwo {
     public static void main(String[] args) {
         AssignmentTwo demo = new AssignmentTwo();
 
+        // Ride operations are silent by default; print their events like before
+        RideEventBus.setDefaultListener(new ConsoleRideEventListener());
+
         // Use args parameter to avoid warnings
         boolean hasArgs = args != null && args.length > 0;
 
@@ -244,6 +249,22 @@ public class AssignmentTwo {
         ferrisWheel.printRideHistory();
         System.out.println();
 
+        // Sorted queries do not change the history order
+        System.out.println("🔝 Top 3 visitors by comparator (history not modified):");
+        for (Visitor visitor : ferrisWheel.topK(comparator, 3)) {
+            System.out.println("   " + visitor.getName() + " (" + visitor.getAge() + ", " + visitor.getMembershipLevel() + ")");
+        }
+        HistoryPage page = ferrisWheel.page(comparator, 0, 4);
+        while (!page.getVisitors().isEmpty()) {
+            System.out.print("📄 Page at offset " + page.getOffset() + ":");
+            for (Visitor visitor : page.getVisitors()) {
+                System.out.print(" " + visitor.getName());
+            }
+            System.out.println();
+            page = ferrisWheel.page(comparator, page.getNextOffset(), 4);
+        }
+        System.out.println();
+
         // Sort using custom comparator
         System.out.println("🔃 Sorting ride history using: " + comparator);
         ferrisWheel.sortRideHistory(comparator);
@@ -585,6 +606,57 @@ public class AssignmentTwo {
         edgeVisitor.setAge(200); // Should be prevented
         System.out.println("   Age after trying to set to 200: " + edgeVisitor.getAge());
 
+        // Missing name and membership level are exported as "null", as before
+        Ride nullFieldRide = new Ride("Null Field Ride", null, 2);
+        nullFieldRide.addVisitorToHistory(new Visitor(null, 30, "NULLID1", null));
+        String nullFieldFile = "data" + File.separator + "null_fields.csv";
+        try {
+            nullFieldRide.exportRideHistory(nullFieldFile);
+            System.out.println("   Exported row with missing fields: " + Files.readAllLines(Paths.get(nullFieldFile)).get(0));
+            nullFieldRide.exportRideHistoryBinary(nullFieldFile + ".rhbf");
+            Ride binaryCopy = new Ride("Null Field Copy", null, 2);
+            binaryCopy.importRideHistoryBinary(nullFieldFile + ".rhbf");
+            System.out.println("   Binary round trip keeps missing fields: "
+                    + binaryCopy.topK(Comparator.comparingInt(Visitor::getAge), 1).get(0));
+        } catch (Exception e) {
+            System.out.println("   ❌ Export with missing fields failed: " + e.getMessage());
+        } finally {
+            new File(nullFieldFile).delete();
+            new File(nullFieldFile + ".rhbf").delete();
+        }
+
+        // A visitor without an id can still take the ride and be found in its history
+        Visitor noIdVisitor = new Visitor("No Id Guest", 22, null, "Basic");
+        nullFieldRide.addVisitorToHistory(noIdVisitor);
+        nullFieldRide.checkVisitorFromHistory(noIdVisitor);
+
+        // Appending gzip rows to a plain CSV export would leave a file that cannot be imported
+        String mixedFile = "data" + File.separator + "mixed_append.csv";
+        try {
+            nullFieldRide.exportRideHistory(mixedFile);
+            nullFieldRide.exportRideHistory(mixedFile, true, true);
+            System.out.println("   ❌ Gzip append to a plain file was accepted");
+        } catch (FileOperationException e) {
+            System.out.println("   ✅ Gzip append to a plain file rejected: " + e.getCause().getCause().getMessage());
+        } finally {
+            new File(mixedFile).delete();
+        }
+
+        // Incremental export when the last rider has no id: the checkpoint still lets it append
+        String incrementalFile = "data" + File.separator + "null_id_incremental.csv";
+        try {
+            nullFieldRide.exportRideHistoryIncremental(incrementalFile);
+            nullFieldRide.addVisitorToHistory(new Visitor("Late Guest", 40, "NULLID2", "Gold"));
+            long appended = nullFieldRide.exportRideHistoryIncremental(incrementalFile);
+            System.out.println("   " + (appended == 1 ? "✅" : "❌") + " Incremental export after a rider without an id appended "
+                    + appended + " row(s)");
+        } catch (FileOperationException e) {
+            System.out.println("   ❌ Incremental export failed: " + e.getMessage());
+        } finally {
+            new File(incrementalFile).delete();
+            ExportCheckpoint.sidecarFor(Paths.get(incrementalFile)).toFile().delete();
+        }
+
         System.out.println();
 
         // Test 4: Testing utility methods from Ride class
@@ -656,9 +728,758 @@ public class AssignmentTwo {
             System.out.println("   ❌ Unexpected error: " + e.getMessage());
         }
 
+        System.out.println();
+
+        // Test 5: Concurrent entry gates
+        testConcurrentGates();
+
+        // Test 6: Park coordinator
+        testParkCoordinator();
+
+        // Test 7: Capacity planning by simulation
+        testCapacitySimulation();
+
+        // Test 8: Ride metrics
+        testRideMetrics();
+
+        // Test 9: Tiered boarding
+        testTieredBoarding();
+
+        // Test 10: Queue position lookup
+        testQueuePosition();
+
+        // Test 11: Leaving the queue and duplicate rejection
+        testLeaveQueue();
+
+        // Test 12: Bounded history with spill-to-disk archive
+        testArchivingHistory();
+
+        // Test 13: Write-ahead journal and recovery after a restart
+        testJournalRecovery();
+
+        // Test 14: Snapshot and restore of the whole ride
+        testSnapshotRestore();
+
+        // Test 15: Lazy history import
+        testLazyImport();
+
+        // Test 16: Park-wide visitor registry
+        testVisitorRegistry();
+
+        // Test 17: Cross-ride analytics
+        testRideAnalytics();
+
         System.out.println();
         System.out.println("✅ Advanced Testing Completed");
         System.out.println("──────────────────────────────────────────");
         System.out.println();
     }
-}
\ No newline at end of file
+
+    /**
+     * Stress test for QueuePolicy.CONCURRENT
+     * Several gate threads enqueue at the same time while the cycle thread drains,
+     * then every visitor must have been received exactly once and in gate order.
+     */
+    public void testConcurrentGates() {
+        System.out.println("🧪 TEST 5: Testing concurrent entry gates");
+
+        final int gates = 4;
+        final int visitorsPerGate = 50_000;
+        MpscVisitorQueue queue = new MpscVisitorQueue();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> gateThreads = new ArrayList<>();
+
+        for (int g = 0; g < gates; g++) {
+            final int gate = g;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < visitorsPerGate; i++) {
+                    queue.offer(new Visitor("Gate" + gate + "Visitor" + i, 20, gate + ":" + i, "Standard"));
+                }
+            }, "gate-" + g);
+            gateThreads.add(thread);
+            thread.start();
+        }
+
+        // Drain on this thread while the gates are still producing
+        start.countDown();
+        int expected = gates * visitorsPerGate;
+        Set<String> seen = new HashSet<>();
+        int[] lastSeenPerGate = new int[gates];
+        Arrays.fill(lastSeenPerGate, -1);
+        int duplicates = 0;
+        int outOfOrder = 0;
+        while (seen.size() + duplicates < expected) {
+            Visitor visitor = queue.poll();
+            if (visitor == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (!seen.add(visitor.getId())) {
+                duplicates++;
+            }
+            String[] parts = visitor.getId().split(":");
+            int gate = Integer.parseInt(parts[0]);
+            int sequence = Integer.parseInt(parts[1]);
+            if (sequence <= lastSeenPerGate[gate]) {
+                outOfOrder++;
+            }
+            lastSeenPerGate[gate] = sequence;
+        }
+        for (Thread thread : gateThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean passed = seen.size() == expected && duplicates == 0 && outOfOrder == 0 && queue.isEmpty();
+        System.out.println("   Visitors enqueued: " + expected + " from " + gates + " gates");
+        System.out.println("   Unique visitors drained: " + seen.size());
+        System.out.println("   Duplicates: " + duplicates + ", out of gate order: " + outOfOrder);
+        System.out.println("   " + (passed ? "✅ No visitor lost or duplicated" : "❌ Concurrent queue check failed"));
+
+        // Same check through a Ride running cycles while the gates are adding visitors
+        System.out.println("\n   Running a concurrent ride while gates add visitors...");
+        Employee gateOperator = new Employee("Gate Operator", 31, "GOP001", "Operator", "GOPID001");
+        Ride concurrentRide = new Ride("Concurrent Gate Ride", gateOperator, 3, QueuePolicy.CONCURRENT);
+        final int rideVisitorsPerGate = 3;
+        List<Thread> rideGates = new ArrayList<>();
+        for (int g = 0; g < gates; g++) {
+            final int gate = g;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < rideVisitorsPerGate; i++) {
+                    concurrentRide.addVisitorToQueue(new Visitor("G" + gate + "R" + i, 25, "RG" + gate + ":" + i, "Gold"));
+                }
+            }, "ride-gate-" + g);
+            rideGates.add(thread);
+            thread.start();
+        }
+        int expectedRiders = gates * rideVisitorsPerGate;
+        while (concurrentRide.getHistorySize() < expectedRiders) {
+            try {
+                concurrentRide.runOneCycle();
+            } catch (NoVisitorsInQueueException e) {
+                Thread.onSpinWait();
+            } catch (NoOperatorException e) {
+                System.out.println("   ❌ Unexpected error: " + e.getMessage());
+                break;
+            }
+        }
+        for (Thread thread : rideGates) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("   History size: " + concurrentRide.getHistorySize() + " (expected " + expectedRiders + ")");
+        System.out.println("   Queue size: " + concurrentRide.getWaitingQueueSize());
+    }
+
+    /**
+     * Park with many rides, each cycling on its own virtual thread
+     * One ride starts without an operator and must wait in NO_OPERATOR instead of failing;
+     * after shutdown every queued visitor must be in exactly one ride history.
+     */
+    public void testParkCoordinator() {
+        System.out.println("\n🧪 TEST 6: Testing the park coordinator");
+
+        final int rideCount = 60;
+        final int visitorsPerRide = 40;
+        Employee parkOperator = new Employee("Park Operator", 40, "POP001", "Operator", "POPID001");
+        Park park = new Park("Theme Park", Duration.ofMillis(2), Duration.ofMillis(20));
+        for (int r = 0; r < rideCount; r++) {
+            Ride ride = new Ride("Park Ride " + r, (r == 0) ? null : parkOperator, 4, QueuePolicy.CONCURRENT);
+            ride.setEventListener(RideEventListener.NO_OP);  // 60 rides would flood the console
+            park.addRide(ride);
+        }
+        park.start();
+
+        for (int i = 0; i < visitorsPerRide; i++) {
+            for (int r = 0; r < rideCount; r++) {
+                park.addVisitorToQueue("Park Ride " + r, new Visitor("P" + r + "V" + i, 30, "P" + r + ":" + i, "Standard"));
+            }
+        }
+
+        int expectedRiders = (rideCount - 1) * visitorsPerRide;
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (park.getTotalRiders() < expectedRiders && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        System.out.println("   Rides registered: " + park.getRideCount());
+        System.out.println("   Riders boarded: " + park.getTotalRiders() + " (expected " + expectedRiders + ")");
+        System.out.println("   State of ride without operator: " + park.getState("Park Ride 0"));
+
+        // Assign the missing operator and wake the ride instead of waiting for its backoff
+        park.getRide("Park Ride 0").setOperator(parkOperator);
+        park.wake("Park Ride 0");
+        expectedRiders += visitorsPerRide;
+        while (park.getTotalRiders() < expectedRiders && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        boolean stopped;
+        try {
+            stopped = park.shutdown(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = false;
+        }
+        int inHistory = 0;
+        int stillQueued = 0;
+        for (Ride ride : park.getRides()) {
+            inHistory += ride.getHistorySize();
+            stillQueued += ride.getWaitingQueueSize();
+        }
+        System.out.println("   After operator assigned: " + park.getTotalRiders() + " riders boarded");
+        System.out.println("   Loops stopped: " + stopped + ", state: " + park.getState("Park Ride 0"));
+        System.out.println("   " + ((inHistory == expectedRiders && stillQueued == 0)
+                ? "✅ Every visitor rode exactly once"
+                : "❌ Park check failed: " + inHistory + " in history, " + stillQueued + " still queued"));
+    }
+
+    /**
+     * Capacity planning: the same simulated day for several ride capacities
+     * Same seed, so the arrivals are identical and only the capacity differs.
+     */
+    public void testCapacitySimulation() {
+        System.out.println("\n🧪 TEST 7: Capacity planning simulation (12-hour day, seed 42)");
+
+        Employee morning = new Employee("Morning Operator", 29, "SIM001", "Operator", "SIMOP1");
+        Employee evening = new Employee("Evening Operator", 41, "SIM002", "Operator", "SIMOP2");
+        for (int capacity : new int[]{8, 16, 24, 32}) {
+            Ride ride = new Ride("Sim Coaster x" + capacity, null, capacity);
+            ride.setEventListener(RideEventListener.NO_OP);
+            ParkSimulation simulation = new ParkSimulation(42, Duration.ofHours(12));
+            simulation.addRide(ride, Duration.ofMinutes(2),
+                    ArrivalProcess.hourly(300, 400, 500, 600, 700, 700, 650, 600, 500, 400, 300, 200));
+            simulation.addShift(ride.getRideName(), morning, Duration.ZERO, Duration.ofHours(6));
+            simulation.addShift(ride.getRideName(), evening, Duration.ofHours(6).plusMinutes(15), Duration.ofHours(12));
+            SimulationReport.RideResult result = simulation.run().getRides().get(0);
+            System.out.printf("   Capacity %2d: riders %,6d, left %,5d, wait p50 %s, p99 %s, utilization %.0f%%, seats %.0f%%%n",
+                    capacity, result.getRiders(), result.getLeftInQueue(),
+                    SimulationReport.minutes(result.getWaitTimes().getPercentile(50)),
+                    SimulationReport.minutes(result.getWaitTimes().getPercentile(99)),
+                    100 * result.getUtilization(), 100 * result.getSeatUtilization());
+        }
+
+        // A tiered queue boards out of arrival order; every rider still gets its own wait time
+        Ride tiered = new Ride("Sim Tiered Coaster", null, 16, QueuePolicy.TIERED);
+        tiered.setEventListener(RideEventListener.NO_OP);
+        ParkSimulation simulation = new ParkSimulation(42, Duration.ofHours(12));
+        simulation.addRide(tiered, Duration.ofMinutes(2),
+                ArrivalProcess.hourly(300, 400, 500, 600, 700, 700, 650, 600, 500, 400, 300, 200));
+        simulation.addShift(tiered.getRideName(), morning, Duration.ZERO, Duration.ofHours(12));
+        SimulationReport.RideResult result = simulation.run().getRides().get(0);
+        boolean consistent = result.getWaitTimes().getCount() == result.getRiders()
+                && result.getRiders() + result.getLeftInQueue() == result.getArrivals()
+                && result.getWaitTimes().getMax() <= Duration.ofHours(12).toMillis();
+        System.out.printf("   %s Tiered capacity 16: riders %,6d, left %,5d, wait p50 %s, p99 %s%n",
+                consistent ? "✅" : "❌", result.getRiders(), result.getLeftInQueue(),
+                SimulationReport.minutes(result.getWaitTimes().getPercentile(50)),
+                SimulationReport.minutes(result.getWaitTimes().getPercentile(99)));
+    }
+
+    /**
+     * Ride metrics: counters and histograms after a busy run, also read back over JMX
+     */
+    public void testRideMetrics() {
+        System.out.println("\n🧪 TEST 8: Ride metrics");
+
+        Employee operator = new Employee("Metrics Operator", 33, "MET001", "Operator", "METOP1");
+        Ride ride = new Ride("Metrics Coaster", operator, 8);
+        ride.setEventListener(RideEventListener.NO_OP);
+        for (int i = 1; i <= 1000; i++) {
+            ride.addVisitorToQueue(new Visitor("Metrics Guest " + i, 20 + i % 50, "MET" + i, "Standard"));
+        }
+        ride.removeVisitorFromQueue();
+        try {
+            ride.runOneCycle();
+            ride.runUntilEmpty();
+        } catch (Exception e) {
+            System.out.println("   ❌ Unexpected error: " + e.getMessage());
+        }
+
+        RideMetrics.Snapshot snapshot = ride.getMetrics().snapshot();
+        System.out.println("   Enqueued " + snapshot.getEnqueued() + ", boarded " + snapshot.getBoarded()
+                + ", removed " + snapshot.getRemoved() + ", cycles " + snapshot.getCycles()
+                + ", queue now " + snapshot.getQueueDepth());
+        System.out.println("   Queue depth at dispatch: " + snapshot.getQueueDepths());
+        System.out.println("   Cycle latency sampled for " + snapshot.getCycleLatencyNanos().getCount() + " cycles, "
+                + "queue wait for " + snapshot.getQueueWaitNanos().getCount() + " riders (1 in "
+                + RideMetrics.CYCLE_SAMPLE_INTERVAL + " and 1 in " + VisitorQueue.WAIT_SAMPLE_INTERVAL + ")");
+
+        try {
+            javax.management.ObjectName name = ride.getMetrics().registerMBean(ride.getRideName());
+            Object boarded = java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "Boarded");
+            System.out.println("   JMX " + name + " Boarded = " + boarded);
+            ride.getMetrics().unregisterMBean();
+        } catch (Exception e) {
+            System.out.println("   ❌ JMX error: " + e.getMessage());
+        }
+        boolean consistent = snapshot.getEnqueued() == snapshot.getBoarded() + snapshot.getRemoved() + snapshot.getQueueDepth()
+                && snapshot.getBoarded() == ride.getHistorySize();
+        System.out.println("   " + (consistent ? "✅ Counters match the queue and history"
+                : "❌ Counters do not match the queue and history"));
+    }
+
+    /**
+     * Tiered boarding: Gold boards first, but every tier gets seats each round
+     */
+    public void testTieredBoarding() {
+        System.out.println("\n🧪 TEST 9: Tiered (fast-pass) boarding, weights Gold 8 : Silver 4 : Standard 2 : Basic 1");
+
+        Employee operator = new Employee("Tier Operator", 36, "TIR001", "Operator", "TIROP1");
+        Ride ride = Ride.withHistoryStore("Fast Pass Coaster", operator, 15, QueuePolicy.TIERED, null);
+        List<Visitor> lastRiders = new ArrayList<>();
+        ride.setEventListener(event -> {
+            if (event instanceof RideEvent.CycleCompleted completed) {
+                lastRiders.clear();
+                lastRiders.addAll(completed.getRiders());
+            }
+        });
+        for (int i = 1; i <= 20; i++) {
+            for (String level : TieredVisitorQueue.TIERS) {
+                ride.addVisitorToQueue(new Visitor(level + " Guest " + i, 30, level.toUpperCase() + "-T" + i, level));
+            }
+        }
+
+        for (int cycle = 1; cycle <= 3; cycle++) {
+            ride.tryRunOneCycle();
+            Map<String, Integer> boarded = new LinkedHashMap<>();
+            for (String level : TieredVisitorQueue.TIERS) {
+                boarded.put(level, 0);
+            }
+            for (Visitor rider : lastRiders) {
+                boarded.merge(rider.getMembershipLevel(), 1, Integer::sum);
+            }
+            System.out.println("   Cycle " + cycle + " boarded " + boarded);
+        }
+        System.out.println("   Still waiting: " + ride.getWaitingQueueSize());
+    }
+
+    /**
+     * Queue position lookup: a guest's place in line and estimated wait while the ride runs
+     */
+    public void testQueuePosition() {
+        System.out.println("\n🧪 TEST 10: Queue position and estimated wait");
+
+        Employee operator = new Employee("Queue Operator", 31, "QPS001", "Operator", "QPSOP1");
+        Ride ride = new Ride("Log Flume", operator, 4);
+        ride.setEventListener(RideEventListener.NO_OP);
+        for (int i = 1; i <= 20; i++) {
+            ride.addVisitorToQueue(new Visitor("Flume Guest " + i, 25, "QP" + i, "Standard"));
+        }
+        System.out.println("   Before any cycle: " + ride.getQueuePosition("QP18"));
+        for (int cycle = 0; cycle < 3; cycle++) {
+            ride.tryRunOneCycle();
+            try {
+                Thread.sleep(20);  // Time between cycles for the running average
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        QueuePosition position = ride.getQueuePosition("QP18");
+        System.out.println("   After 3 cycles:   position " + position.getPosition() + ", boards in cycle "
+                + position.getCyclesUntilBoarding() + ", estimated wait about "
+                + (position.getEstimatedWait().toMillis() / 10 * 10) + " ms");
+        System.out.println("   Boarded visitor QP1: " + ride.getQueuePosition("QP1"));
+    }
+
+    /**
+     * Guests leaving the line from the middle, and the same guest queued twice
+     */
+    public void testLeaveQueue() {
+        System.out.println("\n🧪 TEST 11: Leaving the queue and duplicate rejection");
+
+        Ride ride = new Ride("Haunted House", null, 2);
+        Visitor[] guests = new Visitor[5];
+        for (int i = 0; i < guests.length; i++) {
+            guests[i] = new Visitor("Haunted Guest " + (i + 1), 22 + i, "HH" + (i + 1), "Standard");
+            ride.addVisitorToQueue(guests[i]);
+        }
+        ride.addVisitorToQueue(guests[2]);  // Rejected: already queued
+        System.out.println("   Queue size after duplicate attempt: " + ride.getWaitingQueueSize());
+
+        ride.removeVisitorFromQueue(guests[2]);
+        ride.removeVisitorFromQueue(guests[2]);  // No longer queued
+        System.out.println("   " + guests[2].getName() + " queued: " + ride.isQueued(guests[2])
+                + ", " + guests[3].getName() + " queued: " + ride.isQueued(guests[3]));
+        ride.printQueue();
+    }
+
+    public void testArchivingHistory() {
+        System.out.println("\n🧪 TEST 12: Bounded ride history with spill-to-disk archive");
+
+        try {
+            java.nio.file.Path directory = Files.createTempDirectory("ride-history");
+            ArchivingRideHistory history = new ArchivingRideHistory(directory, 8, 4);
+            Ride ride = Ride.withHistoryStore("Log Flume", null, 4, QueuePolicy.FIFO, history);
+            Visitor first = null;
+            for (int i = 1; i <= 30; i++) {
+                Visitor visitor = new Visitor("Flume Rider " + i, 18 + i % 40, "LF" + i, "Standard");
+                ride.addVisitorToHistory(visitor);
+                if (first == null) {
+                    first = visitor;
+                }
+            }
+            System.out.println("   History size: " + ride.getHistorySize() + " (in memory: " + history.getInMemorySize()
+                    + ", archived: " + history.getArchivedSize() + " in " + history.getSegmentCount() + " segments)");
+            ride.checkVisitorFromHistory(first);  // Found in the oldest segment on disk
+
+            // The archive directory disappears mid-run: riders must stay in the history, not be lost
+            Employee operator = new Employee("Flume Operator", 35, "EMP-LF", "Operator", "EMP035");
+            ride.setOperator(operator);
+            ride.setEventListener(RideEventListener.NO_OP);
+            for (int i = 31; i <= 60; i++) {
+                ride.addVisitorToQueue(new Visitor("Flume Rider " + i, 18 + i % 40, "LF" + i, "Standard"));
+            }
+            history.archive();
+            java.nio.file.Path moved = directory.resolveSibling(directory.getFileName() + "-moved");
+            Files.move(directory, moved);
+            Files.writeString(directory, "not a directory");
+            ride.runUntilEmpty();
+            boolean kept = ride.getHistorySize() == 60 && ride.getWaitingQueueSize() == 0
+                    && history.getArchiveFailure() != null;
+            Files.delete(directory);
+            Files.move(moved, directory);
+            history.archive();  // Archiving works again and the ring shrinks back
+            kept &= history.getArchiveFailure() == null && history.getArchivedSize() == 60
+                    && history.contains(first) && history.get(59).getId().equals("LF60");
+            System.out.println("   " + (kept ? "✅" : "❌") + " Archive failure: " + history.getFailedArchiveCount()
+                    + " failed attempts, history " + ride.getHistorySize() + ", no rider lost");
+
+            history.clear();  // Also deletes the segment files
+            Files.deleteIfExists(directory);
+        } catch (java.io.IOException e) {
+            System.out.println("❌ Error: Could not create the history directory: " + e.getMessage());
+        } catch (NoOperatorException | NoVisitorsInQueueException e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        }
+    }
+
+    public void testJournalRecovery() {
+        System.out.println("\n🧪 TEST 13: Write-ahead journal and recovery after a restart");
+
+        Employee operator = new Employee("Jade Lin", 31, "EMP-JL", "Operator", "EMP031");
+        String directory = "data" + File.separator + "journal-bumper-cars";
+        try {
+            Ride ride = new Ride("Bumper Cars", operator, 2);
+            ride.openJournal(directory);
+            for (int i = 1; i <= 5; i++) {
+                ride.addVisitorToQueue(new Visitor("Bumper Guest " + i, 15 + i, "BC" + i, "Standard"));
+            }
+            ride.runOneCycle();
+            // No closeJournal: the process "crashes" here and a new Ride picks up the journal
+
+            Ride restarted = new Ride("Bumper Cars", operator, 2);
+            restarted.openJournal(directory);
+            System.out.println("   After restart: queue " + restarted.getWaitingQueueSize() + ", history "
+                    + restarted.getHistorySize() + ", cycles " + restarted.getNumOfCycles());
+            restarted.printQueue();
+            restarted.closeJournal();
+            ride.closeJournal();
+        } catch (Exception e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        } finally {
+            File[] files = new File(directory).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            new File(directory).delete();
+        }
+        checkJournalCrashConsistency();
+    }
+
+    // Crash points a journal must survive: a torn or corrupt last record, every possible cut of
+    // the log, a checkpoint interrupted before its log was moved in, and an archived history
+    private void checkJournalCrashConsistency() {
+        java.nio.file.Path directory = Paths.get("data", "journal-crash");
+        java.nio.file.Path journalDirectory = directory.resolve("journal");
+        java.nio.file.Path copy = directory.resolve("copy");
+        Employee operator = new Employee("Crash Operator", 40, "EMP-CR", "Operator", "EMP040");
+        try {
+            deleteTree(directory);
+            Ride ride = new Ride("Crash Coaster", operator, 2);
+            ride.setEventListener(RideEventListener.NO_OP);
+            ride.openJournal(journalDirectory.toString());
+            java.nio.file.Path log = journalLog(journalDirectory);
+            // Every change is synced before it returns, so the log size after it marks its record's end
+            TreeMap<Long, String> states = new TreeMap<>();
+            states.put(Files.size(log), journalState(ride));
+            for (int i = 1; i <= 12; i++) {
+                ride.addVisitorToQueue(new Visitor("Crash Guest " + i, 20 + i, "CR" + i, "Standard"));
+                states.put(Files.size(log), journalState(ride));
+                if (i % 3 == 0) {
+                    ride.runOneCycle();
+                    states.put(Files.size(log), journalState(ride));
+                }
+            }
+            ride.removeVisitorFromQueue(new Visitor("Crash Guest 11", 31, "CR11", "Standard"));
+            states.put(Files.size(log), journalState(ride));
+            ride.closeJournal();
+            long logSize = Files.size(log);
+
+            // Cut the log at every byte: recovery must rebuild the state after the last whole record
+            int mismatches = 0;
+            for (long cut = 0; cut <= logSize; cut++) {
+                deleteTree(copy);
+                Files.createDirectories(copy);
+                for (java.nio.file.Path file : listFiles(journalDirectory)) {
+                    Files.copy(file, copy.resolve(file.getFileName()));
+                }
+                try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+                        journalLog(copy), java.nio.file.StandardOpenOption.WRITE)) {
+                    channel.truncate(cut);
+                }
+                Map.Entry<Long, String> expected = states.floorEntry(cut);
+                String recovered = recoveredState(copy.toString(), new Ride("Crash Coaster", operator, 2));
+                if (!recovered.equals((expected != null) ? expected.getValue() : states.firstEntry().getValue())) {
+                    mismatches++;
+                }
+            }
+            System.out.println("   " + (mismatches == 0 ? "✅" : "❌") + " Log cut at each of " + (logSize + 1)
+                    + " positions: " + mismatches + " recoveries differ from the last whole record");
+
+            // A torn record after the last whole one is dropped and the log truncated back
+            Files.write(log, new byte[]{40, 0, 0, 0, 1, 2, 3}, java.nio.file.StandardOpenOption.APPEND);
+            boolean torn = recoveredState(journalDirectory.toString(), new Ride("Crash Coaster", operator, 2))
+                    .equals(states.lastEntry().getValue()) && Files.size(log) == logSize;
+            System.out.println("   " + (torn ? "✅" : "❌") + " Torn tail dropped, log truncated to " + logSize + " bytes");
+
+            // A flipped byte fails the last record's CRC: recovery stops before that record
+            byte[] bytes = Files.readAllBytes(log);
+            bytes[bytes.length - 1] ^= 0x5A;
+            Files.write(log, bytes);
+            boolean corrupt = recoveredState(journalDirectory.toString(), new Ride("Crash Coaster", operator, 2))
+                    .equals(states.lowerEntry(logSize).getValue());
+            System.out.println("   " + (corrupt ? "✅" : "❌") + " Corrupt last record rejected by its CRC");
+
+            // Crash during a checkpoint: the next history file is in place, its log is not
+            String beforeCheckpoint = states.lowerEntry(logSize).getValue();
+            java.nio.file.Path history = listFiles(journalDirectory).stream()
+                    .filter(file -> file.getFileName().toString().endsWith(".rhbf")).findFirst().orElseThrow();
+            String name = history.getFileName().toString();
+            long generation = Long.parseLong(name.substring("history-".length(), name.length() - ".rhbf".length()));
+            Files.copy(history, journalDirectory.resolve(String.format("history-%06d.rhbf", generation + 1)));
+            Files.write(journalDirectory.resolve(String.format("journal-%06d.log.tmp", generation + 1)), bytes);
+            Ride interrupted = new Ride("Crash Coaster", operator, 2);
+            boolean checkpoint = recoveredState(journalDirectory.toString(), interrupted).equals(beforeCheckpoint);
+            System.out.println("   " + (checkpoint ? "✅" : "❌") + " Interrupted checkpoint ignored, generation "
+                    + generation + " recovered");
+
+            // With an archived history the checkpoint holds only the in-memory ring; recovery skips the segments
+            java.nio.file.Path archive = directory.resolve("archive");
+            java.nio.file.Path archiveJournal = directory.resolve("archive-journal");
+            Ride archived = Ride.withHistoryStore("Crash Flume", operator, 3, QueuePolicy.FIFO,
+                    new ArchivingRideHistory(archive, 8, 4));
+            archived.setEventListener(RideEventListener.NO_OP);
+            archived.openJournal(archiveJournal.toString());
+            for (int i = 1; i <= 40; i++) {
+                archived.addVisitorToQueue(new Visitor("Flume Guest " + i, 30, "CF" + i, "Gold"));
+            }
+            archived.runCycles(10);
+            archived.checkpointJournal();
+            archived.runCycles(2);
+            String expectedArchived = journalState(archived);  // No closeJournal: crash
+            Ride reopened = Ride.withHistoryStore("Crash Flume", operator, 3, QueuePolicy.FIFO,
+                    new ArchivingRideHistory(archive, 8, 4));
+            boolean skipped = recoveredState(archiveJournal.toString(), reopened).equals(expectedArchived);
+            archived.closeJournal();
+            System.out.println("   " + (skipped ? "✅" : "❌") + " Archived history recovered without duplicates: "
+                    + reopened.getHistorySize() + " riders");
+        } catch (Exception e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        } finally {
+            try {
+                deleteTree(directory);
+            } catch (java.io.IOException e) {
+                System.out.println("❌ Error: Could not delete " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Opens the journal on a fresh ride, returns its state and closes the journal again
+    private static String recoveredState(String directory, Ride ride) throws FileOperationException {
+        ride.setEventListener(RideEventListener.NO_OP);
+        ride.openJournal(directory);
+        String state = journalState(ride);
+        ride.closeJournal();
+        return state;
+    }
+
+    // Cycles, queue in boarding order and history ids
+    private static String journalState(Ride ride) {
+        TreeMap<Long, String> queue = new TreeMap<>();
+        StringBuilder history = new StringBuilder();
+        for (Visitor visitor : ride.getHistoryStore()) {
+            history.append(visitor.getId()).append(' ');
+        }
+        for (int i = 1; i <= 40; i++) {
+            for (String id : new String[]{"CR" + i, "CF" + i}) {
+                QueuePosition position = ride.getQueuePosition(id);
+                if (position != null) {
+                    queue.put(position.getPosition(), id);
+                }
+            }
+        }
+        return "cycles " + ride.getNumOfCycles() + ", queue " + queue.values() + ", history " + history;
+    }
+
+    private static java.nio.file.Path journalLog(java.nio.file.Path directory) throws java.io.IOException {
+        return listFiles(directory).stream()
+                .filter(file -> file.getFileName().toString().matches("journal-\\d+\\.log"))
+                .findFirst().orElseThrow(() -> new java.io.IOException("No journal log in " + directory));
+    }
+
+    private static List<java.nio.file.Path> listFiles(java.nio.file.Path directory) throws java.io.IOException {
+        try (java.util.stream.Stream<java.nio.file.Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static void deleteTree(java.nio.file.Path root) throws java.io.IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (java.util.stream.Stream<java.nio.file.Path> files = Files.walk(root)) {
+            for (java.nio.file.Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public void testSnapshotRestore() {
+        System.out.println("\n🧪 TEST 14: Snapshot and restore of the whole ride");
+
+        Employee operator = new Employee("Omar Haddad", 29, "EMP-OH", "Operator", "EMP029");
+        Ride ride = new Ride("Ferris Wheel", operator, 2);
+        for (int i = 1; i <= 6; i++) {
+            ride.addVisitorToQueue(new Visitor("Wheel Guest " + i, 30 + i, "FW" + i, "Gold"));
+        }
+        ride.tryRunOneCycle();
+
+        java.nio.file.Path file = Paths.get("data", "ferris_wheel.rsnp");
+        try {
+            ride.snapshot(file);
+            Ride restored = new Ride();
+            restored.restore(file);
+            System.out.println("   Restored " + restored.getRideName() + ": operator " + restored.getOperator().getName()
+                    + ", max riders " + restored.getMaxRider() + ", cycles " + restored.getNumOfCycles()
+                    + ", queue " + restored.getWaitingQueueSize() + ", history " + restored.getHistorySize());
+
+            // A snapshot whose max riders decodes as 0 is rejected before the ride changes
+            byte[] bytes = Files.readAllBytes(file);
+            java.nio.ByteBuffer.wrap(bytes).order(java.nio.ByteOrder.LITTLE_ENDIAN).putInt(20, 0);
+            Files.write(file, bytes);
+            try {
+                restored.restore(file);
+                System.out.println("   ❌ Corrupt snapshot was restored: max riders " + restored.getMaxRider());
+            } catch (FileOperationException e) {
+                boolean unchanged = restored.getMaxRider() == 2 && restored.getHistorySize() == ride.getHistorySize();
+                System.out.println("   " + (unchanged ? "✅" : "❌") + " Corrupt snapshot rejected: "
+                        + e.getCause().getCause().getMessage());
+            }
+        } catch (FileOperationException | java.io.IOException e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        } finally {
+            new File(file.toString()).delete();
+        }
+    }
+
+    public void testLazyImport() {
+        System.out.println("\n🧪 TEST 15: Lazy import of a history file");
+
+        Employee operator = new Employee("Lena Novak", 34, "EMP-LN", "Operator", "EMP034");
+        Ride source = new Ride("Log Flume", operator, 4);
+        for (int i = 1; i <= 8; i++) {
+            source.addVisitorToHistory(new Visitor("Flume Guest " + i, 20 + i, "LF" + i, (i % 2 == 0) ? "Gold" : "Basic"));
+        }
+        String filename = "data" + File.separator + "log_flume_lazy.csv";
+        try {
+            source.exportRideHistory(filename);
+
+            LazyCsvHistory history = new LazyCsvHistory();
+            Ride ride = Ride.withHistoryStore("Log Flume", operator, 4, QueuePolicy.FIFO, history);
+            ride.importRideHistoryLazy(filename);
+            System.out.println("   Indexed " + ride.getHistorySize() + " rows, " + history.getMappedRowCount()
+                    + " still undecoded");
+            ride.checkVisitorFromHistory(new Visitor("Flume Guest 5", 25, "LF5", "Basic"));
+            ride.sortRideHistory(new VisitorComparator());
+            System.out.println("   After sorting " + history.getMappedRowCount() + " rows are undecoded");
+        } catch (FileOperationException e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        } finally {
+            new File(filename).delete();
+        }
+    }
+
+    public void testVisitorRegistry() {
+        System.out.println("\n🧪 TEST 16: One Visitor instance per guest across rides that load the same file");
+
+        Employee operator = new Employee("Priya Raman", 41, "EMP-PR", "Operator", "EMP041");
+        Ride carousel = new Ride("Carousel", operator, 2);
+        Ride teacups = new Ride("Teacups", operator, 2);
+        Ride swings = new Ride("Swings", operator, 2);
+        for (int i = 1; i <= 4; i++) {
+            carousel.addVisitorToHistory(new Visitor("Day Guest " + i, 10 + i, "DG" + i, "Silver"));
+        }
+        String filename = "data" + File.separator + "carousel_registry.csv";
+        boolean wasEnabled = VisitorRegistry.isEnabled();
+        VisitorRegistry.setEnabled(true);  // Off by default
+        try {
+            carousel.exportRideHistory(filename);
+            teacups.importRideHistory(filename);
+            swings.importRideHistory(filename);
+            Visitor onCarousel = carousel.topK(new VisitorComparator(), 1).get(0);
+            Visitor onTeacups = teacups.topK(new VisitorComparator(), 1).get(0);
+            Visitor onSwings = swings.topK(new VisitorComparator(), 1).get(0);
+            System.out.println("   " + onTeacups.getName() + " is the same instance on both importing rides: "
+                    + (onTeacups == onSwings));
+            System.out.println("   The carousel keeps the instance it was given: " + (onCarousel != onTeacups));
+        } catch (FileOperationException e) {
+            System.out.println("❌ Error: " + e.getMessage());
+        } finally {
+            VisitorRegistry.setEnabled(wasEnabled);
+            new File(filename).delete();
+        }
+    }
+
+    public void testRideAnalytics() {
+        System.out.println("\n🧪 TEST 17: Cross-ride analytics without exporting");
+
+        Employee operator = new Employee("Marco Bianchi", 38, "EMP-MB", "Operator", "EMP038");
+        Ride coaster = new Ride("Cyclone", operator, 2);
+        Ride dodgems = new Ride("Dodgems", operator, 2);
+        String[] levels = {"Gold", "Silver", "Standard", "Basic"};
+        for (int i = 1; i <= 6; i++) {
+            Visitor guest = new Visitor("Park Guest " + i, 8 * i, "PG" + i, levels[i % levels.length], i % 3 + 1);
+            coaster.addVisitorToHistory(guest);
+            if (i % 2 == 0) {
+                dodgems.addVisitorToHistory(guest);
+            }
+        }
+
+        RideAnalytics analytics = new RideAnalytics(List.of(coaster, dodgems));
+        RideAnalytics.VisitorCounts ridesPerVisitor = analytics.ridesPerVisitor();
+        System.out.println("   " + ridesPerVisitor.getVisitorCount() + " guests took " + ridesPerVisitor.getTotalRides()
+                + " rides; most rides: " + ridesPerVisitor.top(1).get(0));
+        for (RideAnalytics.MembershipTotals totals : analytics.ticketsByMembership().values()) {
+            System.out.println("   " + totals);
+        }
+        for (RideAnalytics.AgeDistribution ages : analytics.ageDistributionByRide().values()) {
+            System.out.println("   " + ages);
+        }
+        System.out.println("   Busiest ride: " + analytics.busiestRide());
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event sink that formats and prints events on a background thread
+ * Callers only enqueue the event; a writer thread drains events in batches,
+ * formats the whole batch into one buffer and writes it with a single print.
+ * When the queue is full a caller waits up to OFFER_TIMEOUT_MILLIS for space and then drops
+ * the event, so a stalled writer never blocks the rides; dropped events are counted, as are
+ * events whose formatting or printing threw (the writer logs nothing else and keeps going).
+ * Call close() to flush pending events before the program exits.
+ */
+public class AsyncRideEventListener implements RideEventListener, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 65_536;
+    private static final int DEFAULT_BATCH_SIZE = 1_024;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final PrintStream out;
+    private final BlockingQueue<RideEvent> pending;
+    private final int batchSize;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean closed;
+
+    // Default constructor (prints to System.out)
+    public AsyncRideEventListener() {
+        this(System.out, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param out       stream the writer thread prints to
+     * @param capacity  maximum number of pending events; callers wait briefly, then drop, when it is full
+     * @param batchSize maximum number of events formatted per write
+     */
+    public AsyncRideEventListener(PrintStream out, int capacity, int batchSize) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Capacity and batch size must be at least 1");
+        }
+        this.out = out;
+        this.pending = new LinkedBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.writer = new Thread(this::writeLoop, "ride-event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void onEvent(RideEvent event) {
+        if (closed || !writer.isAlive()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            if (!pending.offer(event, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                dropped.increment();
+            }
+        } catch (InterruptedException e) {
+            dropped.increment();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<RideEvent> batch = new ArrayList<>(batchSize);
+        StringBuilder text = new StringBuilder();
+        try {
+            while (!closed || !pending.isEmpty()) {
+                RideEvent first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                int formatted = 0;
+                for (RideEvent event : batch) {
+                    try {
+                        text.append(event.format()).append(System.lineSeparator());
+                        formatted++;
+                    } catch (RuntimeException e) {
+                        failed.increment();  // Skip the event, keep the rest of the batch
+                    }
+                }
+                try {
+                    out.print(text);
+                    out.flush();
+                } catch (RuntimeException e) {
+                    failed.add(formatted);
+                }
+                batch.clear();
+                text.setLength(0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Events not queued because the queue stayed full, the listener was closed or the writer had stopped
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    // Events lost because formatting or printing them threw
+    public long getFailedEvents() {
+        return failed.sum();
+    }
+
+    // Stops accepting events and waits until everything already queued has been written
+    // (events raised by other threads while closing may be dropped)
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
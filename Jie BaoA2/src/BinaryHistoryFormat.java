@@ -0,0 +1,320 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Compact binary ride history format (little-endian)
+ *
+ *   magic        4 bytes  "RHBF"
+ *   version      u16      VERSION
+ *   flags        u16      reserved, 0
+ *   dictSize     i32      number of dictionary strings
+ *   recordCount  i32      number of visitors
+ *   dictionary   dictSize x (i32 byteLength, UTF-8 bytes), padded to a multiple of 4 bytes;
+ *                a null string is stored as byteLength NULL_LENGTH with no bytes
+ *   records      recordCount x (i32 name, i32 id, i32 membership, i32 age, i32 tickets)
+ *
+ * Names, ids and membership levels are stored once in the dictionary and records refer
+ * to them by index, so repeated guests and levels cost 4 bytes each. Records are
+ * fixed-width and are read back with bulk IntBuffer transfers.
+ */
+public final class BinaryHistoryFormat {
+    static final int MAGIC = 0x46424852;  // "RHBF" read as a little-endian int
+    static final short VERSION = 1;
+    static final int INTS_PER_RECORD = 5;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int RECORDS_PER_BATCH = 64 * 1024;
+    private static final int ENTRIES_PER_CHUNK = 64 * 1024;
+    private static final int NULL_LENGTH = -1;  // Dictionary entry for a null name, id or level
+
+    private BinaryHistoryFormat() {
+    }
+
+    /**
+     * Write visitors to a binary history file, replacing it
+     * @return number of visitors written
+     */
+    public static int write(Path path, Iterable<Visitor> visitors) throws IOException {
+        // First pass: dictionary of distinct strings in order of first use
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int count = 0;
+        for (Visitor visitor : visitors) {
+            code(codes, dictionary, visitor.getName());
+            code(codes, dictionary, visitor.getId());
+            code(codes, dictionary, visitor.getMembershipLevel());
+            count++;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+            buffer.putInt(dictionary.size()).putInt(count);
+            writeDictionary(channel, buffer, dictionary);
+
+            // Second pass: fixed-width records
+            for (Visitor visitor : visitors) {
+                if (buffer.remaining() < INTS_PER_RECORD * Integer.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(codes.get(visitor.getName()));
+                buffer.putInt(codes.get(visitor.getId()));
+                buffer.putInt(codes.get(visitor.getMembershipLevel()));
+                buffer.putInt(visitor.getAge());
+                buffer.putInt(visitor.getTickets());
+            }
+            flush(channel, buffer);
+        }
+        return count;
+    }
+
+    /**
+     * Read every visitor of a binary history file
+     * @param sink receives visitors in file order
+     * @return number of visitors read
+     */
+    public static int read(Path path, Consumer<Visitor> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary history file too large: " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary ride history file: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary history version " + version + " in " + path);
+            }
+            buffer.getShort();  // flags
+            int dictSize = buffer.getInt();
+            int recordCount = buffer.getInt();
+            String[] dictionary = readDictionary(buffer, dictSize);
+            readRecords(buffer, recordCount, dictionary, sink);
+            return recordCount;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt binary history file: " + path, e);
+        }
+    }
+
+    /**
+     * Byte offsets of the dictionary entries of a mapped binary history file
+     * Entry i starts at offsets[i] and the last element is where the records start, so a
+     * caller that keeps the file mapped and the offsets at hand can decode single records
+     * with readRecord without walking the dictionary again.
+     */
+    static int[] dictionaryOffsets(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a binary ride history file");
+        }
+        int dictSize = buffer.getInt(8);
+        int recordCount = buffer.getInt(12);
+        if (dictSize < 0 || recordCount < 0) {
+            throw new IOException("Corrupt binary history header");
+        }
+        int[] offsets = new int[dictSize + 1];
+        int position = 16;
+        for (int i = 0; i < dictSize; i++) {
+            if (buffer.limit() - position < Integer.BYTES) {
+                throw new IOException("Corrupt dictionary entry " + i);
+            }
+            int length = buffer.getInt(position);
+            if (length < NULL_LENGTH || length > buffer.limit() - position - Integer.BYTES) {
+                throw new IOException("Corrupt dictionary entry " + i);
+            }
+            offsets[i] = position;
+            position += Integer.BYTES + Math.max(0, length);
+        }
+        position += (4 - ((position - 16) & 3)) & 3;
+        if ((long) recordCount * INTS_PER_RECORD * Integer.BYTES > buffer.limit() - position) {
+            throw new IOException("Corrupt record count: " + recordCount);
+        }
+        offsets[dictSize] = position;
+        return offsets;
+    }
+
+    /**
+     * Read one visitor of a mapped binary history file without decoding the others
+     * Only the three dictionary strings the record refers to are decoded.
+     * @param offsets dictionaryOffsets of the same file
+     * @param record  index of the visitor in file order
+     */
+    static Visitor readRecord(ByteBuffer buffer, IntBuffer offsets, int record) throws IOException {
+        try {
+            if (record < 0 || record >= buffer.getInt(12)) {
+                throw new IOException("No record " + record);
+            }
+            int base = offsets.get(offsets.limit() - 1) + record * INTS_PER_RECORD * Integer.BYTES;
+            return VisitorRegistry.resolve(entry(buffer, offsets, buffer.getInt(base)),
+                    buffer.getInt(base + 12),
+                    entry(buffer, offsets, buffer.getInt(base + 4)),
+                    entry(buffer, offsets, buffer.getInt(base + 8)),
+                    buffer.getInt(base + 16));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt binary history file", e);
+        }
+    }
+
+    private static String entry(ByteBuffer buffer, IntBuffer offsets, int code) throws IOException {
+        if (code < 0 || code >= offsets.limit() - 1) {
+            throw new IOException("Corrupt dictionary reference: " + code);
+        }
+        int position = offsets.get(code);
+        int length = buffer.getInt(position);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Dictionary entries (length-prefixed UTF-8) followed by padding to a 4-byte boundary
+    static void writeDictionary(FileChannel channel, ByteBuffer buffer, List<String> dictionary) throws IOException {
+        long written = 0;
+        for (String text : dictionary) {
+            if (text == null) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(NULL_LENGTH);
+                written += Integer.BYTES;
+                continue;
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(bytes.length);
+            if (bytes.length > buffer.remaining()) {
+                flush(channel, buffer);
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+            } else {
+                buffer.put(bytes);
+            }
+            written += Integer.BYTES + bytes.length;
+        }
+        int padding = (int) ((4 - (written & 3)) & 3);
+        for (int i = 0; i < padding; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Decode the dictionary at the buffer's position and move past it
+     * One pass over the length prefixes validates them and marks chunk boundaries, then the
+     * chunks are decoded on all cores. Each string's hash is computed there too (String caches
+     * it), so hash-indexed history stores do not pay for it on their single insert thread.
+     */
+    static String[] readDictionary(ByteBuffer buffer, int dictSize) throws IOException {
+        if (dictSize < 0) {
+            throw new IOException("Corrupt dictionary size: " + dictSize);
+        }
+        int start = buffer.position();
+        int[] chunkStarts = new int[(dictSize + ENTRIES_PER_CHUNK - 1) / ENTRIES_PER_CHUNK];
+        int position = start;
+        for (int i = 0; i < dictSize; i++) {
+            if ((i % ENTRIES_PER_CHUNK) == 0) {
+                chunkStarts[i / ENTRIES_PER_CHUNK] = position;
+            }
+            if (buffer.limit() - position < Integer.BYTES) {
+                throw new IOException("Corrupt dictionary entry " + i);
+            }
+            int length = buffer.getInt(position);
+            if (length < NULL_LENGTH || length > buffer.limit() - position - Integer.BYTES) {
+                throw new IOException("Corrupt dictionary entry " + i);
+            }
+            position += Integer.BYTES + Math.max(0, length);
+        }
+
+        String[] dictionary = new String[dictSize];
+        IntStream range = IntStream.range(0, chunkStarts.length);
+        (chunkStarts.length > 1 ? range.parallel() : range).forEach(chunk -> {
+            int entry = chunk * ENTRIES_PER_CHUNK;
+            int end = Math.min(dictSize, entry + ENTRIES_PER_CHUNK);
+            int at = chunkStarts[chunk];
+            byte[] scratch = new byte[256];
+            for (; entry < end; entry++) {
+                int length = buffer.getInt(at);
+                if (length == NULL_LENGTH) {
+                    at += Integer.BYTES;  // dictionary[entry] stays null
+                    continue;
+                }
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(at + Integer.BYTES, scratch, 0, length);  // Absolute read, safe to share
+                String text = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                text.hashCode();
+                dictionary[entry] = text;
+                at += Integer.BYTES + length;
+            }
+        });
+        int read = position - start;
+        buffer.position(position + ((4 - (read & 3)) & 3));
+        return dictionary;
+    }
+
+    // Bulk-reads fixed-width records in batches and resolves their dictionary codes
+    static void readRecords(ByteBuffer buffer, int recordCount, String[] dictionary,
+                            Consumer<Visitor> sink) throws IOException {
+        if (recordCount < 0 || (long) recordCount * INTS_PER_RECORD * Integer.BYTES > buffer.remaining()) {
+            throw new IOException("Corrupt record count: " + recordCount);
+        }
+        IntBuffer ints = buffer.asIntBuffer();
+        int[] batch = new int[Math.min(recordCount, RECORDS_PER_BATCH) * INTS_PER_RECORD];
+        int remaining = recordCount;
+        while (remaining > 0) {
+            int records = Math.min(remaining, RECORDS_PER_BATCH);
+            ints.get(batch, 0, records * INTS_PER_RECORD);
+            for (int r = 0, i = 0; r < records; r++, i += INTS_PER_RECORD) {
+                sink.accept(VisitorRegistry.resolve(lookup(dictionary, batch[i]), batch[i + 3],
+                        lookup(dictionary, batch[i + 1]), lookup(dictionary, batch[i + 2]), batch[i + 4]));
+            }
+            remaining -= records;
+        }
+        buffer.position(buffer.position() + recordCount * INTS_PER_RECORD * Integer.BYTES);
+    }
+
+    static int code(Map<String, Integer> codes, List<String> dictionary, String text) {
+        Integer code = codes.get(text);
+        if (code == null) {
+            code = dictionary.size();
+            codes.put(text, code);
+            dictionary.add(text);
+        }
+        return code;
+    }
+
+    private static String lookup(String[] dictionary, int code) throws IOException {
+        if (code < 0 || code >= dictionary.length) {
+            throw new IOException("Corrupt dictionary reference: " + code);
+        }
+        return dictionary[code];
+    }
+
+    static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Column-wise history store for very large histories
+ * Each entry is five ints: dictionary codes for name, id and membership level, plus age and tickets.
+ * There is no per-entry object, and repeated names, ids and levels are stored once.
+ * Visitor objects are created on demand by get() and iteration, so they are equal to the
+ * visitors that were added but not the same instances.
+ */
+public class ColumnarRideHistory implements HistoryStore {
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary ids = new StringDictionary();
+    private final StringDictionary memberships = new StringDictionary();
+
+    private int[] nameCodes;
+    private int[] idCodes;
+    private int[] membershipCodes;
+    private int[] ages;
+    private int[] tickets;
+    private int size;
+
+    private long[] pairSet;  // Open-addressing set of (id code, name code) for contains()
+    private int pairCount;
+
+    public ColumnarRideHistory() {
+        allocate(16);
+    }
+
+    @Override
+    public boolean add(Visitor visitor) {
+        if (visitor == null) {
+            throw new NullPointerException("ColumnarRideHistory cannot store null visitors");
+        }
+        if (size == ages.length) {
+            grow(size + 1);
+        }
+        int nameCode = names.encode(visitor.getName());
+        int idCode = ids.encode(visitor.getId());
+        nameCodes[size] = nameCode;
+        idCodes[size] = idCode;
+        membershipCodes[size] = memberships.encode(visitor.getMembershipLevel());
+        ages[size] = visitor.getAge();
+        tickets[size] = visitor.getTickets();
+        size++;
+        addPair(pack(idCode, nameCode));
+        return true;
+    }
+
+    @Override
+    public void ensureCapacity(int additional) {
+        if ((long) size + additional > ages.length) {
+            grow((int) Math.min(Integer.MAX_VALUE - 8, (long) size + additional));
+        }
+    }
+
+    // Same result as RideHistory.contains: equal id and name
+    @Override
+    public boolean contains(Visitor visitor) {
+        if (visitor == null) {
+            return false;
+        }
+        int idCode = ids.find(visitor.getId());
+        int nameCode = names.find(visitor.getName());
+        if (idCode == StringDictionary.NOT_FOUND || nameCode == StringDictionary.NOT_FOUND) {
+            return false;
+        }
+        return containsPair(pack(idCode, nameCode));
+    }
+
+    @Override
+    public Visitor get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new Visitor(names.decode(nameCodes[index]), ages[index], ids.decode(idCodes[index]),
+                memberships.decode(membershipCodes[index]), tickets[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        names.clear();
+        ids.clear();
+        memberships.clear();
+        allocate(16);
+        size = 0;
+    }
+
+    /**
+     * Sort with any Visitor comparator (stable)
+     * VisitorComparator order is computed from the dictionary codes without creating visitors;
+     * other comparators see each entry materialized once. The columns are then permuted.
+     */
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        int[] order = VisitorSortKeys.isVisitorOrder(comparator) ? keyedOrder() : null;
+        if (order == null) {
+            Integer[] boxed = new Integer[size];
+            Visitor[] visitors = new Visitor[size];
+            for (int i = 0; i < size; i++) {
+                boxed[i] = i;
+                visitors[i] = get(i);
+            }
+            Arrays.sort(boxed, (a, b) -> comparator.compare(visitors[a], visitors[b]));
+            order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = boxed[i];
+            }
+        }
+        nameCodes = permute(nameCodes, order);
+        idCodes = permute(idCodes, order);
+        membershipCodes = permute(membershipCodes, order);
+        ages = permute(ages, order);
+        tickets = permute(tickets, order);
+    }
+
+    // VisitorComparator order from ranked dictionaries (null when a name or level is null)
+    private int[] keyedOrder() {
+        for (int i = 0; i < size; i++) {
+            if (nameCodes[i] == StringDictionary.NULL_CODE || membershipCodes[i] == StringDictionary.NULL_CODE) {
+                return null;
+            }
+        }
+        int[] nameRanks = VisitorSortKeys.rankNames(names.toArray());
+        int[] membershipRanks = VisitorSortKeys.rankMemberships(memberships.toArray());
+        return VisitorSortKeys.sortedOrder(size, i -> nameRanks[nameCodes[i]], i -> ages[i],
+                i -> membershipRanks[membershipCodes[i]]);
+    }
+
+    // get() only reads the columns and dictionaries
+    @Override
+    public boolean supportsParallelReads() {
+        return true;
+    }
+
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private int[] permute(int[] column, int[] order) {
+        int[] sorted = new int[column.length];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = column[order[i]];
+        }
+        return sorted;
+    }
+
+    private void allocate(int capacity) {
+        nameCodes = new int[capacity];
+        idCodes = new int[capacity];
+        membershipCodes = new int[capacity];
+        ages = new int[capacity];
+        tickets = new int[capacity];
+        pairSet = new long[32];
+        Arrays.fill(pairSet, EMPTY);
+        pairCount = 0;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(minCapacity, ages.length + (long) (ages.length >> 1)));
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        idCodes = Arrays.copyOf(idCodes, capacity);
+        membershipCodes = Arrays.copyOf(membershipCodes, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        tickets = Arrays.copyOf(tickets, capacity);
+    }
+
+    // --- (id, name) pair set; codes are >= -1, so -1 in both halves never occurs as a real pair
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private static long pack(int idCode, int nameCode) {
+        return ((long) idCode << 32) | (nameCode & 0xFFFFFFFFL);
+    }
+
+    // Ids and names are usually first seen together, so their codes are often equal; mix both halves
+    private static int mix(long pair) {
+        pair *= 0x9E3779B97F4A7C15L;
+        return StringDictionary.mix((int) (pair ^ (pair >>> 32)));
+    }
+
+    private void addPair(long pair) {
+        int mask = pairSet.length - 1;
+        int slot = mix(pair) & mask;
+        while (pairSet[slot] != EMPTY) {
+            if (pairSet[slot] == pair) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        pairSet[slot] = pair;
+        pairCount++;
+        if (pairCount * 2 > pairSet.length) {
+            long[] old = pairSet;
+            pairSet = new long[old.length * 2];
+            Arrays.fill(pairSet, EMPTY);
+            int newMask = pairSet.length - 1;
+            for (long value : old) {
+                if (value != EMPTY) {
+                    int s = mix(value) & newMask;
+                    while (pairSet[s] != EMPTY) {
+                        s = (s + 1) & newMask;
+                    }
+                    pairSet[s] = value;
+                }
+            }
+        }
+    }
+
+    private boolean containsPair(long pair) {
+        int mask = pairSet.length - 1;
+        int slot = mix(pair) & mask;
+        while (pairSet[slot] != EMPTY) {
+            if (pairSet[slot] == pair) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,23 @@
+import java.io.PrintStream;
+
+/**
+ * Event sink that prints each event to the console as soon as it is raised
+ * Produces the same emoji output the ride operations used to print directly.
+ */
+public class ConsoleRideEventListener implements RideEventListener {
+    private final PrintStream out;
+
+    // Default constructor (prints to System.out)
+    public ConsoleRideEventListener() {
+        this(System.out);
+    }
+
+    public ConsoleRideEventListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onEvent(RideEvent event) {
+        out.println(event.format());
+    }
+}
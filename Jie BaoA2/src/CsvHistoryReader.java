@@ -0,0 +1,465 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reader for ride history CSV files written by exportRideHistory
+ * Plain files are memory-mapped and tokenized in place: ages and tickets are parsed
+ * straight from the bytes, and Strings are only created for name, id and membership.
+ * Visitors are resolved through VisitorRegistry, so when it is enabled a guest already
+ * loaded elsewhere in the park is not created again.
+ * Gzip files are decompressed into a reusable buffer and parsed the same way.
+ *
+ * Line handling matches the original BufferedReader/split(",") import: lines are trimmed,
+ * blank lines are skipped, trailing empty fields are ignored, a line needs at least
+ * 4 fields, and tickets default to 1 when the fifth field is missing.
+ * Bad lines are counted and reported in the HistoryImportResult instead of printed.
+ * A reader keeps scratch state, so use one instance per thread.
+ */
+public class CsvHistoryReader {
+    static final int MAX_RANGE_SIZE = 256 << 20;  // Largest file region mapped at once
+    private static final int MIN_PARALLEL_RANGE_SIZE = 4 << 20;
+    private static final int STREAM_BUFFER_SIZE = 1 << 20;
+    private static final int FIELDS_USED = 5;
+
+    private static final int VALID = 1;
+    private static final int BLANK = 0;
+    private static final int REJECTED = -1;
+
+    private final int[] fieldStart = new int[FIELDS_USED];
+    private final int[] fieldEnd = new int[FIELDS_USED];
+    private byte[] scratch = new byte[256];
+    private int parsedInt;
+    private int age;  // Fields of the line last accepted by checkLine
+    private int tickets;
+
+    /** Receives each line of a region */
+    private interface LineHandler {
+        void line(int start, int end, long lineNumber);
+    }
+
+    /**
+     * Import every valid row of a history file
+     * @param path   the CSV file (plain or gzip)
+     * @param sink   receives visitors in file order
+     * @param result collects counts and skipped lines
+     */
+    public void read(Path path, Consumer<Visitor> sink, HistoryImportResult result) throws IOException {
+        if (isGzip(path)) {
+            readCompressed(path, sink, result);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long lineNumber = 1;
+            for (long[] range : splitOnLineBoundaries(channel, MAX_RANGE_SIZE)) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                lineNumber += parseLines(mapped, 0, mapped.limit(), lineNumber, sink, result);
+            }
+        }
+    }
+
+    /**
+     * Import a history file using all available cores
+     * The file is split into byte ranges that end on line boundaries and each range is parsed
+     * on a ForkJoin worker. Visitors reach the sink in file order and error line numbers refer
+     * to the whole file. Gzip files cannot be split and are read sequentially.
+     */
+    public void readParallel(Path path, Consumer<Visitor> sink, HistoryImportResult result) throws IOException {
+        if (isGzip(path)) {
+            readCompressed(path, sink, result);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            long target = Math.max(MIN_PARALLEL_RANGE_SIZE,
+                    Math.min(MAX_RANGE_SIZE, channel.size() / (parallelism * 4L)));
+            List<long[]> ranges = splitOnLineBoundaries(channel, target);
+
+            RangeTask[] tasks = new RangeTask[ranges.size()];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new RangeTask(channel, ranges.get(i));
+            }
+            try {
+                ForkJoinPool.commonPool().invoke(new RangeBatch(tasks, 0, tasks.length));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // Merge in file order, shifting each range's line numbers by the lines before it
+            long linesBefore = 0;
+            for (RangeTask task : tasks) {
+                task.visitors.forEach(sink);
+                result.merge(task.result, linesBefore);
+                linesBefore += task.lineCount;
+            }
+        }
+    }
+
+    // Parses one file range into its own list and result (line numbers relative to the range)
+    private static final class RangeTask {
+        private final FileChannel channel;
+        private final long[] range;
+        private final List<Visitor> visitors = new ArrayList<>();
+        private final HistoryImportResult result = new HistoryImportResult(null);
+        private long lineCount;
+
+        RangeTask(FileChannel channel, long[] range) {
+            this.channel = channel;
+            this.range = range;
+        }
+
+        void run() throws IOException {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+            lineCount = new CsvHistoryReader().parseLines(mapped, 0, mapped.limit(), 1, visitors::add, result);
+        }
+    }
+
+    // Splits the list of ranges in halves until a single range is left
+    private static final class RangeBatch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeTask[] tasks;  // Never serialized, only run in this JVM
+        private final int from;
+        private final int to;
+
+        RangeBatch(RangeTask[] tasks, int from, int to) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeBatch(tasks, from, middle), new RangeBatch(tasks, middle, to));
+            } else if (to > from) {
+                try {
+                    tasks[from].run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the lines in buffer[start, end)
+     * @param firstLineNumber file line number of the first line in the region
+     * @return number of lines in the region
+     */
+    long parseLines(ByteBuffer buffer, int start, int end, long firstLineNumber,
+                    Consumer<Visitor> sink, HistoryImportResult result) {
+        long[] imported = {0};
+        long lines = forEachLine(buffer, start, end, firstLineNumber, (lineStart, lineEnd, lineNumber) -> {
+            Visitor visitor = parseLine(buffer, lineStart, lineEnd, lineNumber, result);
+            if (visitor != null) {
+                sink.accept(visitor);
+                imported[0]++;
+            }
+        });
+        result.addImported(imported[0]);
+        return lines;
+    }
+
+    /**
+     * Validate the lines in buffer[start, end) without creating Visitors (see LazyCsvHistory)
+     * Lines are accepted or rejected exactly as parseLines would; rejected ones go to result.
+     * @param rowStarts receives the offset of each valid line, in order
+     * @return number of lines in the region
+     */
+    long indexLines(ByteBuffer buffer, int start, int end, long firstLineNumber,
+                    IntConsumer rowStarts, HistoryImportResult result) {
+        long[] valid = {0};
+        long lines = forEachLine(buffer, start, end, firstLineNumber, (lineStart, lineEnd, lineNumber) -> {
+            if (checkLine(buffer, lineStart, lineEnd, lineNumber, result) == VALID) {
+                rowStarts.accept(lineStart);
+                valid[0]++;
+            }
+        });
+        result.addImported(valid[0]);
+        return lines;
+    }
+
+    // Decodes the row starting at offset start, which indexLines reported as valid
+    Visitor decodeRow(ByteBuffer buffer, int start) {
+        int end = lineEnd(buffer, start, buffer.limit());
+        return (checkLine(buffer, start, end, 0, null) == VALID) ? visitorFromLine(buffer) : null;
+    }
+
+    /**
+     * String.hashCode of the id of the row starting at offset start (a row indexLines reported
+     * as valid), computed from the bytes without creating the String when the id is ASCII
+     */
+    int idHash(ByteBuffer buffer, int start) {
+        checkLine(buffer, start, lineEnd(buffer, start, buffer.limit()), 0, null);
+        int hash = 0;
+        for (int i = fieldStart[2]; i < fieldEnd[2]; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                return decode(buffer, fieldStart[2], fieldEnd[2]).hashCode();  // Non-ASCII: hash the chars
+            }
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    // Offset of the line break (or end) after start
+    private static int lineEnd(ByteBuffer buffer, int start, int end) {
+        int position = start;
+        byte b;
+        while (position < end && (b = buffer.get(position)) != '\n' && b != '\r') {
+            position++;
+        }
+        return position;
+    }
+
+    // Splits buffer[start, end) into lines (\n, \r or \r\n) and returns how many there were
+    private static long forEachLine(ByteBuffer buffer, int start, int end, long firstLineNumber,
+                                    LineHandler handler) {
+        long lines = 0;
+        int position = start;
+        while (position < end) {
+            int lineStart = position;
+            byte b = 0;
+            while (position < end && (b = buffer.get(position)) != '\n' && b != '\r') {
+                position++;
+            }
+            int lineEnd = position;
+            if (position < end) {
+                position++;
+                if (b == '\r' && position < end && buffer.get(position) == '\n') {
+                    position++;
+                }
+            }
+            handler.line(lineStart, lineEnd, firstLineNumber + lines);
+            lines++;
+        }
+        return lines;
+    }
+
+    // Returns the visitor on the line, or null for a blank or rejected line
+    private Visitor parseLine(ByteBuffer buffer, int start, int end, long lineNumber, HistoryImportResult result) {
+        return (checkLine(buffer, start, end, lineNumber, result) == VALID) ? visitorFromLine(buffer) : null;
+    }
+
+    /**
+     * Validate one line, keeping its field bounds, age and tickets for visitorFromLine
+     * @param result receives the reason for a rejected line (may be null)
+     * @return VALID, BLANK or REJECTED
+     */
+    private int checkLine(ByteBuffer buffer, int start, int end, long lineNumber, HistoryImportResult result) {
+        // Same as String.trim(): drop bytes <= ' ' (multi-byte UTF-8 sequences are all >= 0x80)
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return BLANK;
+        }
+
+        // Locate the first five fields; like split(","), trailing empty fields do not count
+        int field = 0;
+        int lastNonEmptyField = -1;
+        int current = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                if (i > current) {
+                    lastNonEmptyField = field;
+                }
+                if (field < FIELDS_USED) {
+                    fieldStart[field] = current;
+                    fieldEnd[field] = i;
+                }
+                field++;
+                current = i + 1;
+            }
+        }
+        int fieldCount = lastNonEmptyField + 1;
+        if (fieldCount < 4) {
+            return reject(result, lineNumber, "Invalid format", buffer, start, end);
+        }
+
+        if (!parseInt(buffer, fieldStart[1], fieldEnd[1])) {
+            return reject(result, lineNumber, "Invalid number format", buffer, start, end);
+        }
+        age = parsedInt;
+        tickets = 1;
+        if (fieldCount >= 5) {
+            if (!parseInt(buffer, fieldStart[4], fieldEnd[4])) {
+                return reject(result, lineNumber, "Invalid number format", buffer, start, end);
+            }
+            tickets = parsedInt;
+        }
+        return VALID;
+    }
+
+    private int reject(HistoryImportResult result, long lineNumber, String reason, ByteBuffer buffer,
+                       int start, int end) {
+        if (result != null) {
+            result.addError(new HistoryImportResult.LineError(lineNumber, reason, decode(buffer, start, end)));
+        }
+        return REJECTED;
+    }
+
+    // Visitor from the line last accepted by checkLine
+    private Visitor visitorFromLine(ByteBuffer buffer) {
+        String name = decode(buffer, fieldStart[0], fieldEnd[0]);
+        String id = decode(buffer, fieldStart[2], fieldEnd[2]);
+        String membership = decode(buffer, fieldStart[3], fieldEnd[3]);
+        return VisitorRegistry.resolve(name, age, id, membership, tickets);
+    }
+
+    // Integer.parseInt over bytes; the result goes to parsedInt
+    private boolean parseInt(ByteBuffer buffer, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return false;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                return b < 0 && parseIntSlow(buffer, start, end);  // Negative byte: part of a non-ASCII char
+            }
+            int digit = b - '0';
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return false;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return false;
+        }
+        parsedInt = (int) value;
+        return true;
+    }
+
+    // Non-ASCII digits are legal for Integer.parseInt; defer to it for those rare fields
+    private boolean parseIntSlow(ByteBuffer buffer, int start, int end) {
+        try {
+            parsedInt = Integer.parseInt(decode(buffer, start, end));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private String decode(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Gzip input: decompress into a buffer and parse up to the last complete line each time
+    private void readCompressed(Path path, Consumer<Visitor> sink, HistoryImportResult result) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path), STREAM_BUFFER_SIZE)) {
+            byte[] data = new byte[STREAM_BUFFER_SIZE];
+            int filled = 0;
+            long lineNumber = 1;
+            int read;
+            while ((read = in.read(data, filled, data.length - filled)) != -1) {
+                filled += read;
+                int cut = lastLineFeed(data, filled) + 1;
+                if (cut > 0) {
+                    lineNumber += parseLines(ByteBuffer.wrap(data), 0, cut, lineNumber, sink, result);
+                    System.arraycopy(data, cut, data, 0, filled - cut);
+                    filled -= cut;
+                } else if (filled == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);  // A line longer than the buffer
+                }
+            }
+            parseLines(ByteBuffer.wrap(data), 0, filled, lineNumber, sink, result);
+        }
+    }
+
+    private static int lastLineFeed(byte[] data, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1F && in.read() == 0x8B;
+        }
+    }
+
+    /**
+     * Split a file into [start, end) byte ranges of about targetSize bytes,
+     * each ending just after a '\n' (except the last), so no line spans two ranges
+     */
+    static List<long[]> splitOnLineBoundaries(FileChannel channel, long targetSize) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+        long start = 0;
+        while (start < size) {
+            long end = start + targetSize;
+            if (end >= size) {
+                end = size;
+            } else {
+                end = nextLineStart(channel, end - 1, size, probe);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long to import near byte offset " + start);
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    // Offset just after the first '\n' at or after from (or size when there is none)
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming writer for ride history CSV files (name,age,id,membership,tickets)
+ * Rows are UTF-8 encoded straight into one large reusable buffer, without building
+ * temporary Strings, and the buffer is written to a FileChannel when it fills up.
+ * With compression enabled the output is gzip; in append mode each writer adds a new
+ * gzip member, which standard gzip readers (and importRideHistory) read as one stream.
+ * Appending gzip rows to a plain file, or plain rows to a gzip file, is rejected: the
+ * reader decides the format from the first bytes, so a mixed file would not import.
+ */
+public class CsvHistoryWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_INT_DIGITS = 11;  // "-2147483648"
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_VALUE_DIGITS = String.valueOf(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final OutputStream compressed;  // null when writing plain CSV
+    private final ByteBuffer buffer;
+    private long rowsWritten;
+
+    /**
+     * @param path     file to write (created if missing)
+     * @param append   add rows to the end of an existing file instead of replacing it
+     * @param compress write gzip-compressed output
+     * @throws IOException also when appending in a format other than the existing file's
+     */
+    public CsvHistoryWriter(Path path, boolean append, boolean compress) throws IOException {
+        if (append && Files.isRegularFile(path) && Files.size(path) > 0 && CsvHistoryReader.isGzip(path) != compress) {
+            throw new IOException("Cannot append " + (compress ? "gzip" : "plain") + " rows to the "
+                    + (compress ? "plain" : "gzip") + " file " + path);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        if (compress) {
+            try {
+                // GZIPOutputStream needs a byte[], so the buffer is heap-backed in this mode
+                this.compressed = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        } else {
+            this.compressed = null;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    }
+
+    public void write(Visitor visitor) throws IOException {
+        // A null field is written as "null", as String.join did
+        String name = String.valueOf(visitor.getName());
+        String id = String.valueOf(visitor.getId());
+        String membership = String.valueOf(visitor.getMembershipLevel());
+
+        // Worst case is 3 bytes per UTF-16 char (a surrogate pair is 2 chars for 4 bytes)
+        int maxRowBytes = 3 * (name.length() + id.length() + membership.length())
+                + 2 * MAX_INT_DIGITS + 4 + LINE_SEPARATOR.length;
+        if (buffer.remaining() < maxRowBytes) {
+            flushBuffer();
+            if (buffer.remaining() < maxRowBytes) {
+                writeOversizedRow(visitor);
+                return;
+            }
+        }
+
+        putString(name);
+        buffer.put((byte) ',');
+        putInt(visitor.getAge());
+        buffer.put((byte) ',');
+        putString(id);
+        buffer.put((byte) ',');
+        putString(membership);
+        buffer.put((byte) ',');
+        putInt(visitor.getTickets());
+        buffer.put(LINE_SEPARATOR);
+        rowsWritten++;
+    }
+
+    public void writeAll(Iterable<Visitor> visitors) throws IOException {
+        for (Visitor visitor : visitors) {
+            write(visitor);
+        }
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+            if (compressed != null) {
+                compressed.close();  // Writes the gzip trailer and closes the channel
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        if (compressed != null) {
+            compressed.write(buffer.array(), 0, buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    // A single row larger than the buffer: encode it on its own (rare, allocates)
+    private void writeOversizedRow(Visitor visitor) throws IOException {
+        String line = visitor.getName() + "," + visitor.getAge() + "," + visitor.getId() + ","
+                + visitor.getMembershipLevel() + "," + visitor.getTickets() + System.lineSeparator();
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        if (compressed != null) {
+            compressed.write(bytes);
+        } else {
+            ByteBuffer row = ByteBuffer.wrap(bytes);
+            while (row.hasRemaining()) {
+                channel.write(row);
+            }
+        }
+        rowsWritten++;
+    }
+
+    // UTF-8 encodes a String into the buffer (caller guarantees room)
+    private void putString(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');  // Unpaired surrogate, same replacement as String.getBytes
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    // Writes the decimal digits of an int into the buffer (caller guarantees room)
+    private void putInt(int value) {
+        if (value == Integer.MIN_VALUE) {
+            buffer.put(MIN_VALUE_DIGITS);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first, reverse them in place
+        int end = buffer.position() - 1;
+        while (start < end) {
+            byte digit = buffer.get(start);
+            buffer.put(start++, buffer.get(end));
+            buffer.put(end--, digit);
+        }
+    }
+}
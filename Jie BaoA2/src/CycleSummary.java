@@ -0,0 +1,32 @@
+/**
+ * Result of a bulk ride run (see RideInterface.runCycles)
+ */
+public class CycleSummary {
+    private final long ridersProcessed;
+    private final int cyclesRun;
+    private final int remainingInQueue;
+
+    public CycleSummary(long ridersProcessed, int cyclesRun, int remainingInQueue) {
+        this.ridersProcessed = ridersProcessed;
+        this.cyclesRun = cyclesRun;
+        this.remainingInQueue = remainingInQueue;
+    }
+
+    public long getRidersProcessed() {
+        return ridersProcessed;
+    }
+
+    public int getCyclesRun() {
+        return cyclesRun;
+    }
+
+    public int getRemainingInQueue() {
+        return remainingInQueue;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CycleSummary{ridersProcessed=%d, cyclesRun=%d, remainingInQueue=%d}",
+                ridersProcessed, cyclesRun, remainingInQueue);
+    }
+}
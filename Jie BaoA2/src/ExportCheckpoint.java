@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * High-water mark of an incremental history export, kept in a small sidecar file
+ * Records how many history rows the export file holds, the file length after the last
+ * write and the id of the last row, so a later export (even after a restart) can tell
+ * whether it may append or must rewrite the file.
+ * A null last id (a visitor without an id) is stored by leaving the lastId property out.
+ */
+public class ExportCheckpoint {
+    private static final String SUFFIX = ".checkpoint";
+
+    private final long rows;
+    private final long bytes;
+    private final String lastId;
+
+    public ExportCheckpoint(long rows, long bytes, String lastId) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.lastId = lastId;
+    }
+
+    // Sidecar file that holds the checkpoint of an export file
+    public static Path sidecarFor(Path exportFile) {
+        return exportFile.resolveSibling(exportFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Load a checkpoint
+     * @return the checkpoint, or null when the sidecar is missing or unreadable
+     */
+    public static ExportCheckpoint load(Path sidecar) {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(sidecar)) {
+            properties.load(in);
+            return new ExportCheckpoint(
+                    Long.parseLong(properties.getProperty("rows")),
+                    Long.parseLong(properties.getProperty("bytes")),
+                    properties.getProperty("lastId"));
+        } catch (IOException | NumberFormatException e) {
+            return null;  // Treated like a missing checkpoint: the next export rewrites the file
+        }
+    }
+
+    // Writes to a temporary file first so a crash never leaves a half-written checkpoint
+    public void save(Path sidecar) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("rows", String.valueOf(rows));
+        properties.setProperty("bytes", String.valueOf(bytes));
+        if (lastId != null) {
+            properties.setProperty("lastId", lastId);
+        }
+        Path temporary = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, "Ride history export checkpoint");
+        }
+        Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportCheckpoint{rows=%d, bytes=%d, lastId='%s'}", rows, bytes, lastId);
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-threaded FIFO visitor queue (QueuePolicy.FIFO)
+ * Doubly linked list of nodes holding the visitor, its (sampled) enqueue time and its ticket, plus an
+ * index from visitor id to node, so finding, removing and rejecting a duplicate visitor are
+ * all O(1). ticketOf and ticketsAhead may be called from any thread; everything else from
+ * one thread only.
+ */
+public class FifoVisitorQueue extends VisitorQueue {
+
+    private static final class Node {
+        final Visitor visitor;
+        final String id;  // Index key, null if the visitor has no id
+        final long enqueuedAt;
+        final long ticket;
+        Node previous;
+        Node next;
+
+        Node(Visitor visitor, String id, long enqueuedAt, long ticket) {
+            this.visitor = visitor;
+            this.id = id;
+            this.enqueuedAt = enqueuedAt;
+            this.ticket = ticket;
+        }
+    }
+
+    private final Map<String, Node> index = new ConcurrentHashMap<>();  // Visitor id -> node
+    private Node head;
+    private Node tail;
+    private int size;
+    private int modCount;
+    private long lastPolledEnqueueNanos;
+    private long nextTicket;               // Ticket of the next visitor offered
+    private volatile long headTicket;      // Ticket of the next visitor to leave (nextTicket when empty)
+
+    @Override
+    public long offerTicket(Visitor visitor) {
+        if (visitor == null) {
+            throw new NullPointerException("Visitor cannot be null");
+        }
+        String id = idOf(visitor);
+        Node node = new Node(visitor, id, enqueueNanos(nextTicket), nextTicket);
+        if (id != null && index.putIfAbsent(id, node) != null) {
+            return NO_TICKET;  // Already queued
+        }
+        nextTicket++;
+        node.previous = tail;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+        modCount++;
+        return node.ticket;
+    }
+
+    @Override
+    public Visitor poll() {
+        Node first = head;
+        if (first == null) {
+            return null;
+        }
+        unlink(first);
+        lastPolledEnqueueNanos = first.enqueuedAt;
+        return first.visitor;
+    }
+
+    @Override
+    public Visitor peek() {
+        return (head != null) ? head.visitor : null;
+    }
+
+    @Override
+    public long lastPolledEnqueueNanos() {
+        return lastPolledEnqueueNanos;
+    }
+
+    @Override
+    public long ticketOf(String visitorId) {
+        Node node = (visitorId != null) ? index.get(visitorId) : null;
+        return (node != null) ? node.ticket : NO_TICKET;
+    }
+
+    @Override
+    public long ticketsAhead(long ticket) {
+        return ticket - headTicket;
+    }
+
+    @Override
+    public boolean removeVisitor(String visitorId) {
+        Node node = (visitorId != null) ? index.get(visitorId) : null;
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    private void unlink(Node node) {
+        boolean wasHead = node.previous == null;
+        if (wasHead) {
+            head = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        if (node.id != null) {
+            index.remove(node.id, node);
+        }
+        if (wasHead) {
+            headTicket = (head != null) ? head.ticket : nextTicket;
+        }
+        node.previous = null;
+        node.next = null;
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        head = null;
+        tail = null;
+        size = 0;
+        modCount++;
+        headTicket = nextTicket;
+    }
+
+    // Fail-fast iterator in queue order; supports remove()
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<>() {
+            private Node lastReturned;
+            private Node next = head;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Visitor next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = next;
+                next = next.next;
+                return lastReturned.visitor;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                unlink(lastReturned);
+                lastReturned = null;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
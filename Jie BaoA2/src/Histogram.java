@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of non-negative long values (latencies, wait times, queue depths)
+ * Values below 2^SUB_BUCKET_BITS are counted exactly; larger values go to log-linear buckets,
+ * SUB_BUCKET_COUNT per power of two, so any recorded value is reported within about 3%.
+ * Memory is constant (about 15 KB) however many values are recorded, and record() is
+ * lock-free, so several threads may record into the same histogram. record() costs two
+ * atomic adds (bucket and sum); the count is summed from the buckets when read, and the
+ * maximum is only written when it grows.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Records one value (negative values are recorded as 0)
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+        updateMax(value);
+    }
+
+    private void updateMax(long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    public long getCount() {
+        long n = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            n += counts.get(bucket);
+        }
+        return n;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return (n == 0) ? 0.0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Value at a percentile
+     * @param percentile 0 to 100 (e.g. 99.9)
+     * @return the upper bound of the bucket holding that rank (never above getMax()), 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * n));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Adds every value recorded in another histogram
+    public void add(Histogram other) {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            long c = other.counts.get(bucket);
+            if (c != 0) {
+                counts.addAndGet(bucket, c);
+            }
+        }
+        sum.addAndGet(other.sum.get());
+        updateMax(other.max.get());
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts.set(bucket, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);  // >= SUB_BUCKET_BITS
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    // Largest value that falls into a bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = ((SUB_BUCKET_COUNT + subBucket) << shift);
+        return lower + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Histogram{count=%d, mean=%.1f, p50=%d, p99=%d, max=%d}",
+                getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
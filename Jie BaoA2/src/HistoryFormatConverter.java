@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts ride history files between CSV and the binary format
+ * Usage: java HistoryFormatConverter to-binary <csv file> <binary file>
+ *        java HistoryFormatConverter to-csv <binary file> <csv file>
+ */
+public final class HistoryFormatConverter {
+
+    private HistoryFormatConverter() {
+    }
+
+    /**
+     * Convert a CSV history (plain or gzip) to the binary format
+     * @return import result for the CSV file (malformed lines are skipped)
+     */
+    public static HistoryImportResult csvToBinary(Path csvFile, Path binaryFile) throws IOException {
+        List<Visitor> visitors = new ArrayList<>();
+        HistoryImportResult result = new HistoryImportResult(csvFile.toString());
+        new CsvHistoryReader().read(csvFile, visitors::add, result);
+        BinaryHistoryFormat.write(binaryFile, visitors);
+        return result;
+    }
+
+    /**
+     * Convert a binary history file to plain CSV
+     * @return number of visitors converted
+     */
+    public static int binaryToCsv(Path binaryFile, Path csvFile) throws IOException {
+        try (CsvHistoryWriter writer = new CsvHistoryWriter(csvFile, false, false)) {
+            return BinaryHistoryFormat.read(binaryFile, visitor -> {
+                try {
+                    writer.write(visitor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-csv"))) {
+            System.out.println("Usage: java HistoryFormatConverter to-binary <csv file> <binary file>");
+            System.out.println("       java HistoryFormatConverter to-csv <binary file> <csv file>");
+            return;
+        }
+        Path source = Paths.get(args[1]);
+        Path target = Paths.get(args[2]);
+        try {
+            if (args[0].equals("to-binary")) {
+                HistoryImportResult result = csvToBinary(source, target);
+                System.out.println("✅ Converted " + result.getImportedCount() + " visitors to " + target);
+                if (result.getErrorCount() > 0) {
+                    System.out.println("⚠️  " + result.getErrorCount() + " lines had errors and were skipped");
+                    for (HistoryImportResult.LineError error : result.getErrors()) {
+                        System.out.println("   " + error);
+                    }
+                }
+            } else {
+                int count = binaryToCsv(source, target);
+                System.out.println("✅ Converted " + count + " visitors to " + target);
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Conversion failed: " + e.getMessage());
+        }
+    }
+}
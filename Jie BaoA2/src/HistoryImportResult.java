@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a ride history import
+ * Counts are exact; the first MAX_REPORTED_ERRORS skipped lines are kept with their line number and reason.
+ */
+public class HistoryImportResult {
+    public static final int MAX_REPORTED_ERRORS = 1_000;
+
+    /** A line that was skipped during import */
+    public static class LineError {
+        private final long lineNumber;
+        private final String reason;
+        private final String line;
+
+        public LineError(long lineNumber, String reason, String line) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+            this.line = line;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            return reason + " at line " + lineNumber + ": " + line;
+        }
+    }
+
+    private final String filename;
+    private long importedCount;
+    private long errorCount;
+    private final List<LineError> errors;
+
+    public HistoryImportResult(String filename) {
+        this.filename = filename;
+        this.errors = new ArrayList<>();
+    }
+
+    public void addImported(long count) {
+        importedCount += count;
+    }
+
+    public void addError(LineError error) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Add the counts and errors of a partial result (e.g. one range of a parallel import)
+     * @param part        partial result whose line numbers start at 1
+     * @param lineOffset  number of file lines before the part
+     */
+    public void merge(HistoryImportResult part, long lineOffset) {
+        importedCount += part.importedCount;
+        errorCount += part.errorCount;
+        for (LineError error : part.errors) {
+            if (errors.size() >= MAX_REPORTED_ERRORS) {
+                break;
+            }
+            errors.add(new LineError(error.lineNumber + lineOffset, error.reason, error.line));
+        }
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    // Skipped lines in file order (at most MAX_REPORTED_ERRORS)
+    public List<LineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistoryImportResult{file='%s', imported=%d, errors=%d}",
+                filename, importedCount, errorCount);
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a sorted ride history query (see RideInterface.page)
+ * Pass getNextOffset() to the next page() call to continue from where this page ended.
+ */
+public class HistoryPage {
+    private final List<Visitor> visitors;
+    private final int offset;
+    private final int limit;
+    private final int totalSize;
+
+    public HistoryPage(List<Visitor> visitors, int offset, int limit, int totalSize) {
+        this.visitors = Collections.unmodifiableList(visitors);
+        this.offset = offset;
+        this.limit = limit;
+        this.totalSize = totalSize;
+    }
+
+    // Visitors on this page, in comparator order
+    public List<Visitor> getVisitors() {
+        return visitors;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // History size when the page was taken
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    public boolean hasNext() {
+        return (long) offset + visitors.size() < totalSize;
+    }
+
+    public int getNextOffset() {
+        return offset + visitors.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistoryPage{offset=%d, size=%d, total=%d}", offset, visitors.size(), totalSize);
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only sorted queries over a ride history
+ * Results are the same as stably sorting a copy of the history and taking a slice,
+ * but only the first k entries are ever ordered: a bounded max-heap of size k keeps the
+ * k smallest entries seen so far, which costs O(n log k) time and O(k) memory.
+ * Ties are broken by history position, as a stable sort would.
+ */
+final class HistoryQueries {
+    private HistoryQueries() {
+    }
+
+    /**
+     * The k first visitors in comparator order
+     * @return at most k visitors, in order
+     */
+    static List<Visitor> topK(HistoryStore history, Comparator<Visitor> comparator, int k) {
+        int size = history.size();
+        if (k <= 0 || size == 0) {
+            return Collections.emptyList();
+        }
+        if (k >= size) {
+            return sortedCopy(history, comparator);
+        }
+
+        BoundedHeap heap = new BoundedHeap(comparator, k);
+        int position = 0;
+        for (Visitor visitor : history) {
+            heap.offer(visitor, position++);
+        }
+        return heap.drainSorted();
+    }
+
+    // Visitors at positions offset .. offset + limit - 1 of the sorted order
+    static List<Visitor> slice(HistoryStore history, Comparator<Visitor> comparator, int offset, int limit) {
+        long end = Math.min((long) offset + limit, history.size());
+        if (offset >= end) {
+            return Collections.emptyList();
+        }
+        List<Visitor> first = topK(history, comparator, (int) end);
+        return new ArrayList<>(first.subList(offset, (int) end));
+    }
+
+    // Whole history sorted (stable), used when k covers everything
+    private static List<Visitor> sortedCopy(HistoryStore history, Comparator<Visitor> comparator) {
+        Visitor[] visitors = new Visitor[history.size()];
+        int i = 0;
+        for (Visitor visitor : history) {
+            visitors[i++] = visitor;
+        }
+        if (!VisitorSortKeys.isVisitorOrder(comparator) || !VisitorSortKeys.sort(visitors)) {
+            Arrays.sort(visitors, comparator);
+        }
+        return new ArrayList<>(Arrays.asList(visitors));
+    }
+
+    /** Max-heap of the k smallest (visitor, position) pairs, root = largest kept */
+    private static final class BoundedHeap {
+        private final Comparator<Visitor> comparator;
+        private final Visitor[] visitors;
+        private final int[] positions;
+        private int size;
+
+        BoundedHeap(Comparator<Visitor> comparator, int capacity) {
+            this.comparator = comparator;
+            this.visitors = new Visitor[capacity];
+            this.positions = new int[capacity];
+        }
+
+        void offer(Visitor visitor, int position) {
+            if (size < visitors.length) {
+                visitors[size] = visitor;
+                positions[size] = position;
+                siftUp(size++);
+            } else if (compare(visitor, position, 0) < 0) {
+                // Smaller than the largest kept entry: replace the root
+                visitors[0] = visitor;
+                positions[0] = position;
+                siftDown(0);
+            }
+        }
+
+        // Empties the heap largest-first into an ascending list
+        List<Visitor> drainSorted() {
+            Visitor[] sorted = new Visitor[size];
+            while (size > 0) {
+                sorted[size - 1] = visitors[0];
+                size--;
+                visitors[0] = visitors[size];
+                positions[0] = positions[size];
+                visitors[size] = null;
+                siftDown(0);
+            }
+            return new ArrayList<>(Arrays.asList(sorted));
+        }
+
+        // Compares an entry with the kept entry at slot; later positions sort after on ties
+        private int compare(Visitor visitor, int position, int slot) {
+            int compare = comparator.compare(visitor, visitors[slot]);
+            return (compare != 0) ? compare : Integer.compare(position, positions[slot]);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (compare(visitors[slot], positions[slot], parent) <= 0) {
+                    break;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int largest = slot;
+                int left = 2 * slot + 1;
+                int right = left + 1;
+                if (left < size && compare(visitors[left], positions[left], largest) > 0) {
+                    largest = left;
+                }
+                if (right < size && compare(visitors[right], positions[right], largest) > 0) {
+                    largest = right;
+                }
+                if (largest == slot) {
+                    return;
+                }
+                swap(slot, largest);
+                slot = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            Visitor visitor = visitors[a];
+            visitors[a] = visitors[b];
+            visitors[b] = visitor;
+            int position = positions[a];
+            positions[a] = positions[b];
+            positions[b] = position;
+        }
+    }
+}
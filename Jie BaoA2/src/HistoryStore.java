@@ -0,0 +1,65 @@
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Storage backend for a ride's history
+ * Keeps visitors in the order they took the ride (unless sorted) and answers
+ * membership checks without scanning the whole history.
+ */
+public interface HistoryStore extends Iterable<Visitor> {
+    boolean add(Visitor visitor);
+
+    // Pre-sizes the store before a bulk insert
+    void ensureCapacity(int additional);
+
+    // Bulk insert in order (e.g. Ride.restore); stores with a faster path than add per visitor override it
+    default void addAll(Collection<Visitor> visitors) {
+        ensureCapacity(visitors.size());
+        for (Visitor visitor : visitors) {
+            add(visitor);
+        }
+    }
+
+    /**
+     * Check whether a visitor has taken the ride (same result as a scan with Visitor.equals)
+     * @param visitor the visitor to look up
+     * @return true if an equal visitor is in the history
+     */
+    boolean contains(Visitor visitor);
+
+    // Visitor at a position in history order
+    Visitor get(int index);
+
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+
+    /**
+     * Empty the store before a journal recovery replays the whole history into it
+     * A store that keeps part of its history on disk (ArchivingRideHistory) keeps that part
+     * and returns its size; recovery then skips that many leading entries instead of adding them again.
+     * @return number of leading history entries kept
+     */
+    default long resetForRecovery() {
+        clear();
+        return 0;
+    }
+
+    /**
+     * Force the leading entries the store keeps on disk to storage, before a journal checkpoint
+     * that leaves them out (they are the entries resetForRecovery keeps)
+     * @return number of leading history entries on disk
+     */
+    default long forceArchived() {
+        return 0;
+    }
+
+    void sort(Comparator<Visitor> comparator);
+
+    // True if several threads may call get() and size() at once while nothing is added (see RideAnalytics)
+    default boolean supportsParallelReads() {
+        return false;
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * History store that imports CSV files lazily (see Ride.importRideHistoryLazy)
+ * An import maps the file and makes one validating scan over it, keeping only the offset
+ * of each valid line (8 bytes per row). A Visitor is decoded from the mapped bytes when a row
+ * is read by get(), iteration (printing, queries, export) or a contains() check, and all rows
+ * are decoded once when the history is sorted. Visitors added by the ride are kept in memory.
+ * Decoded visitors are equal to the imported rows but are new instances on every read.
+ *
+ * contains() builds an open-addressing index of id hashes on first use (hashed from the
+ * bytes, without decoding) and then only decodes rows whose id hash matches.
+ * Imported files must not be changed in place (truncated or rewritten) while the history
+ * refers to them. Ride's exports move a new file over the old one instead, which the
+ * mappings survive. Gzip files cannot be mapped and are imported eagerly.
+ */
+public class LazyCsvHistory implements HistoryStore {
+    private static final int NOT_INDEXED = -1;
+
+    private final CsvHistoryReader reader = new CsvHistoryReader();
+    private final List<ByteBuffer> ranges = new ArrayList<>();  // Mapped file regions, in import order
+    private final List<Visitor> visitors = new ArrayList<>();   // Rows held in memory
+
+    // One entry per row: (range << 32) | offset for an imported line, ~index into visitors otherwise
+    private long[] rows = new long[16];
+    private int size;
+
+    private int[] slots;   // Open-addressing index for contains(): row + 1, 0 = empty
+    private int[] hashes;  // Id hash of the row in each slot
+    private int indexed = NOT_INDEXED;
+
+    /**
+     * Import a CSV file, appending its valid rows after the current history
+     * Lines are accepted and rejected exactly as CsvHistoryReader.read would.
+     * @return number of rows added
+     */
+    public long importFile(Path path, HistoryImportResult result) throws IOException {
+        int sizeBefore = size;
+        if (CsvHistoryReader.isGzip(path)) {
+            reader.read(path, this::add, result);
+            return size - sizeBefore;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long lineNumber = 1;
+            for (long[] range : CsvHistoryReader.splitOnLineBoundaries(channel, CsvHistoryReader.MAX_RANGE_SIZE)) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                long rangeBits = (long) ranges.size() << 32;
+                ranges.add(mapped);  // The mapping stays valid after the channel is closed
+                lineNumber += reader.indexLines(mapped, 0, mapped.limit(), lineNumber, offset -> {
+                    if (size == rows.length) {
+                        grow(size + 1);
+                    }
+                    rows[size++] = rangeBits | offset;
+                }, result);
+            }
+        } finally {
+            if (indexed != NOT_INDEXED) {
+                indexRows();
+            }
+        }
+        return size - sizeBefore;
+    }
+
+    @Override
+    public boolean add(Visitor visitor) {
+        if (visitor == null) {
+            throw new NullPointerException("LazyCsvHistory cannot store null visitors");
+        }
+        if (size == rows.length) {
+            grow(size + 1);
+        }
+        visitors.add(visitor);
+        rows[size++] = ~(long) (visitors.size() - 1);
+        if (indexed != NOT_INDEXED) {
+            indexRows();
+        }
+        return true;
+    }
+
+    @Override
+    public void ensureCapacity(int additional) {
+        if ((long) size + additional > rows.length) {
+            grow((int) Math.min(Integer.MAX_VALUE - 8, (long) size + additional));
+        }
+    }
+
+    // Same result as RideHistory.contains: equal id and name (null ids match null ids)
+    @Override
+    public boolean contains(Visitor visitor) {
+        if (visitor == null || size == 0) {
+            return false;
+        }
+        if (indexed == NOT_INDEXED) {
+            indexRows();
+        }
+        int hash = Objects.hashCode(visitor.getId());
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && sameVisitor(visitor, get(slots[slot] - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Visitor.equals, except that a null id or name equals null instead of throwing
+    private static boolean sameVisitor(Visitor probe, Visitor entry) {
+        return Objects.equals(probe.getId(), entry.getId()) && Objects.equals(probe.getName(), entry.getName());
+    }
+
+    @Override
+    public Visitor get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long row = rows[index];
+        if (row < 0) {
+            return visitors.get((int) ~row);
+        }
+        return reader.decodeRow(ranges.get((int) (row >>> 32)), (int) row);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Drops the mappings too, so the files can be replaced afterwards
+    @Override
+    public void clear() {
+        ranges.clear();
+        visitors.clear();
+        rows = new long[16];
+        size = 0;
+        slots = null;
+        hashes = null;
+        indexed = NOT_INDEXED;
+    }
+
+    // Decodes every row, so the history no longer refers to any imported file
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        Visitor[] all = new Visitor[size];
+        for (int i = 0; i < size; i++) {
+            all[i] = get(i);
+        }
+        Arrays.sort(all, comparator);
+        ranges.clear();
+        visitors.clear();
+        visitors.addAll(Arrays.asList(all));
+        for (int i = 0; i < size; i++) {
+            rows[i] = ~(long) i;
+        }
+        slots = null;
+        hashes = null;
+        indexed = NOT_INDEXED;
+    }
+
+    // Rows imported but not decoded into memory
+    public int getMappedRowCount() {
+        return size - visitors.size();
+    }
+
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Visitor next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    // Adds rows [indexed + 1, size) to the contains() index, rebuilding it at half load
+    private void indexRows() {
+        if (slots == null || (long) size * 2 > slots.length) {
+            int capacity = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16L, (long) size * 4 - 1)));
+            slots = new int[capacity];
+            hashes = new int[capacity];
+            indexed = NOT_INDEXED;
+        }
+        int mask = slots.length - 1;
+        for (int i = indexed + 1; i < size; i++) {
+            int hash = idHash(i);
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+            hashes[slot] = hash;
+        }
+        indexed = size - 1;
+    }
+
+    // Visitor.hashCode of a row, without decoding imported rows
+    private int idHash(int index) {
+        long row = rows[index];
+        if (row < 0) {
+            return Objects.hashCode(visitors.get((int) ~row).getId());
+        }
+        return reader.idHash(ranges.get((int) (row >>> 32)), (int) row);
+    }
+
+    // Spreads String hash codes, whose low bits cluster for similar ids
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(minCapacity, rows.length + (long) (rows.length >> 1)));
+        rows = Arrays.copyOf(rows, capacity);
+    }
+}
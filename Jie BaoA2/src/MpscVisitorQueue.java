@@ -0,0 +1,185 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multi-producer / single-consumer visitor queue
+ * Any number of gate threads may offer visitors at the same time without blocking each other.
+ * Only one thread (the ride cycle thread) may poll, peek, remove visitors or clear the queue.
+ *
+ * Producers swap themselves into the tail with a compare-and-set and then link the previous
+ * tail to the new node. Taking the ticket from the previous tail inside that CAS keeps tickets
+ * in exactly the order visitors are linked. The consumer owns the head and never needs a lock.
+ * A producer claims the visitor's id in the index before linking, so two gates cannot queue
+ * the same visitor. Removing a visitor from the middle clears its node, which poll then skips.
+ */
+public class MpscVisitorQueue extends VisitorQueue {
+
+    private static final class Node {
+        Visitor visitor;  // null for the stub and for visitors removed from the middle
+        final String id;
+        long enqueuedAt;                   // Set once the ticket is known, before linking
+        volatile long ticket = NO_TICKET;  // Set before the node is published by the tail CAS
+        volatile Node next;
+
+        Node(Visitor visitor, String id) {
+            this.visitor = visitor;
+            this.id = id;
+        }
+    }
+
+    private final AtomicReference<Node> tail;  // Last linked node, swapped by producers
+    private Node head;                         // Stub node owned by the consumer
+    private final AtomicInteger size;          // Approximate while producers are in flight
+    private final Map<String, Node> index = new ConcurrentHashMap<>();  // Visitor id -> node
+    private long lastPolledEnqueueNanos;       // Consumer-owned
+    private volatile long headTicket;          // Ticket of the next visitor to leave
+
+    public MpscVisitorQueue() {
+        Node stub = new Node(null, null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+        this.size = new AtomicInteger();
+    }
+
+    // Safe to call from any thread
+    @Override
+    public long offerTicket(Visitor visitor) {
+        if (visitor == null) {
+            throw new NullPointerException("Visitor cannot be null");
+        }
+        String id = idOf(visitor);
+        Node node = new Node(visitor, id);
+        if (id != null && index.putIfAbsent(id, node) != null) {
+            return NO_TICKET;  // Already queued
+        }
+        size.incrementAndGet();
+        Node previous;
+        do {
+            previous = tail.get();
+            node.ticket = previous.ticket + 1;
+        } while (!tail.compareAndSet(previous, node));
+        node.enqueuedAt = enqueueNanos(node.ticket);
+        previous.next = node;  // Publishes the node to the consumer
+        return node.ticket;
+    }
+
+    // Consumer thread only. May return null for a visitor whose producer has not finished linking yet.
+    @Override
+    public Visitor poll() {
+        Node next = firstLinked();
+        if (next == null) {
+            return null;
+        }
+        Visitor visitor = next.visitor;
+        next.visitor = null;  // next becomes the new stub
+        head = next;
+        if (next.id != null) {
+            index.remove(next.id, next);
+        }
+        size.decrementAndGet();
+        headTicket = next.ticket + 1;
+        lastPolledEnqueueNanos = next.enqueuedAt;
+        return visitor;
+    }
+
+    // First node holding a visitor; removed nodes in front of it become the stub
+    private Node firstLinked() {
+        Node next = head.next;
+        while (next != null && next.visitor == null) {
+            head = next;
+            headTicket = next.ticket + 1;
+            next = next.next;
+        }
+        return next;
+    }
+
+    // Consumer thread only
+    @Override
+    public long lastPolledEnqueueNanos() {
+        return lastPolledEnqueueNanos;
+    }
+
+    // Safe to call from any thread; NO_TICKET for a visitor whose offer is still linking
+    @Override
+    public long ticketOf(String visitorId) {
+        Node node = (visitorId != null) ? index.get(visitorId) : null;
+        return (node != null) ? node.ticket : NO_TICKET;
+    }
+
+    // Safe to call from any thread
+    @Override
+    public long ticketsAhead(long ticket) {
+        return ticket - headTicket;
+    }
+
+    // Consumer thread only
+    @Override
+    public boolean removeVisitor(String visitorId) {
+        Node node = (visitorId != null) ? index.get(visitorId) : null;
+        if (node == null || !index.remove(visitorId, node)) {
+            return false;
+        }
+        node.visitor = null;  // Skipped by poll, even if its producer links it only now
+        size.decrementAndGet();
+        return true;
+    }
+
+    // Consumer thread only
+    @Override
+    public Visitor peek() {
+        Node next = firstLinked();
+        return next != null ? next.visitor : null;
+    }
+
+    // Consumer's view: true when there is no linked visitor to poll
+    @Override
+    public boolean isEmpty() {
+        return firstLinked() == null;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, size.get());
+    }
+
+    // Weakly consistent, read-only iterator (intended for printing the queue)
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<>() {
+            private Node current = head;
+            private Visitor nextVisitor = advance();
+
+            private Visitor advance() {
+                Node node = current.next;
+                while (node != null) {
+                    current = node;
+                    Visitor visitor = node.visitor;
+                    if (visitor != null) {
+                        return visitor;
+                    }
+                    node = node.next;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextVisitor != null;
+            }
+
+            @Override
+            public Visitor next() {
+                if (nextVisitor == null) {
+                    throw new NoSuchElementException();
+                }
+                Visitor visitor = nextVisitor;
+                nextVisitor = advance();
+                return visitor;
+            }
+        };
+    }
+}
@@ -0,0 +1,325 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Park-wide ride coordinator
+ * Owns a registry of rides and runs each ride's cycle loop on its own virtual thread,
+ * so throughput scales with the carrier threads (one per core) rather than with the
+ * number of rides. A loop runs one cycle per cycle interval. A ride without an operator
+ * or with an empty queue is not an error here: the loop switches to NO_OPERATOR or
+ * QUEUE_EMPTY and backs off (doubling up to the maximum backoff) without throwing.
+ * Adding visitors through the park wakes an idle loop immediately.
+ *
+ * Each ride's cycles run only on its loop thread. Visitors may be added from any thread
+ * when the ride uses QueuePolicy.CONCURRENT (openRide creates rides that way).
+ * Read a ride's history after shutdown, or from its event listener.
+ */
+public class Park implements AutoCloseable {
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMillis(500);
+    private static final Duration DEFAULT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String parkName;
+    private final Duration cycleInterval;
+    private final Duration maxBackoff;
+    private final ConcurrentHashMap<String, RideLoop> rides = new ConcurrentHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean shuttingDown;
+
+    // Constructor with the default maximum backoff
+    public Park(String parkName, Duration cycleInterval) {
+        this(parkName, cycleInterval, DEFAULT_MAX_BACKOFF);
+    }
+
+    // Constructor with the interval between cycles and the longest wait of an idle ride
+    public Park(String parkName, Duration cycleInterval, Duration maxBackoff) {
+        if (cycleInterval == null || cycleInterval.isNegative()) {
+            throw new IllegalArgumentException("Cycle interval must be zero or positive");
+        }
+        if (maxBackoff == null || maxBackoff.isNegative()) {
+            throw new IllegalArgumentException("Maximum backoff must be zero or positive");
+        }
+        this.parkName = parkName;
+        this.cycleInterval = cycleInterval;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public String getParkName() {
+        return parkName;
+    }
+
+    public Duration getCycleInterval() {
+        return cycleInterval;
+    }
+
+    // Create a ride with a concurrent queue and register it
+    public Ride openRide(String rideName, Employee operator, int maxRider) {
+        Ride ride = new Ride(rideName, operator, maxRider, QueuePolicy.CONCURRENT);
+        return addRide(ride) ? ride : null;
+    }
+
+    // Register a ride with the park-wide cycle interval
+    public boolean addRide(Ride ride) {
+        return addRide(ride, cycleInterval);
+    }
+
+    /**
+     * Register a ride with its own cycle interval
+     * If the park is already running, the ride's loop starts right away.
+     * @return false if the park is shutting down or a ride with the same name is registered
+     */
+    public boolean addRide(Ride ride, Duration interval) {
+        if (ride == null || interval == null || interval.isNegative()) {
+            RideEventBus.publish(new RideEvent.Notice(null, "❌ Error: Ride and a non-negative interval are required."));
+            return false;
+        }
+        if (shuttingDown) {
+            ride.getEventListener().onEvent(new RideEvent.Notice(ride.getRideName(),
+                    "❌ Error: Park " + parkName + " is shutting down; ride not added."));
+            return false;
+        }
+        RideLoop loop = new RideLoop(ride, interval.toNanos(), Math.max(interval.toNanos(), maxBackoff.toNanos()));
+        if (rides.putIfAbsent(ride.getRideName(), loop) != null) {
+            ride.getEventListener().onEvent(new RideEvent.Notice(ride.getRideName(),
+                    "❌ Error: A ride named " + ride.getRideName() + " is already registered."));
+            return false;
+        }
+        if (started.get()) {
+            loop.start();
+        }
+        if (shuttingDown) {
+            loop.stop();  // shutdown() ran while this ride was being added
+        }
+        return true;
+    }
+
+    public Ride getRide(String rideName) {
+        RideLoop loop = rides.get(rideName);
+        return (loop != null) ? loop.ride : null;
+    }
+
+    public Collection<Ride> getRides() {
+        List<Ride> all = new ArrayList<>(rides.size());
+        for (RideLoop loop : rides.values()) {
+            all.add(loop.ride);
+        }
+        return all;
+    }
+
+    // Aggregations over the histories of all registered rides (run them after shutdown)
+    public RideAnalytics analytics() {
+        return new RideAnalytics(getRides());
+    }
+
+    public int getRideCount() {
+        return rides.size();
+    }
+
+    public RideLoopState getState(String rideName) {
+        RideLoop loop = rides.get(rideName);
+        return (loop != null) ? loop.state : null;
+    }
+
+    // Queue a visitor for a ride and wake its loop if it was idle
+    public boolean addVisitorToQueue(String rideName, Visitor visitor) {
+        RideLoop loop = rides.get(rideName);
+        if (loop == null) {
+            RideEventBus.publish(new RideEvent.Notice(rideName, "❌ Error: No ride named " + rideName + " in " + parkName + "."));
+            return false;
+        }
+        loop.ride.addVisitorToQueue(visitor);
+        loop.wake();
+        return true;
+    }
+
+    // Wake a ride loop that is backing off (e.g. after assigning an operator)
+    public void wake(String rideName) {
+        RideLoop loop = rides.get(rideName);
+        if (loop != null) {
+            loop.wake();
+        }
+    }
+
+    // Start every registered ride loop (rides added later start when added)
+    public void start() {
+        if (shuttingDown || !started.compareAndSet(false, true)) {
+            return;
+        }
+        for (RideLoop loop : rides.values()) {
+            loop.start();
+        }
+    }
+
+    public boolean isRunning() {
+        return started.get() && !shuttingDown;
+    }
+
+    // Cycles run by all ride loops so far
+    public long getTotalCycles() {
+        long total = 0;
+        for (RideLoop loop : rides.values()) {
+            total += loop.cycles;
+        }
+        return total;
+    }
+
+    // Riders boarded by all ride loops so far
+    public long getTotalRiders() {
+        long total = 0;
+        for (RideLoop loop : rides.values()) {
+            total += loop.riders;
+        }
+        return total;
+    }
+
+    /**
+     * Stop all ride loops
+     * No new cycles start; a cycle that is already running completes, so no rider is
+     * lost between the queue and the history. Visitors still queued stay in the queues.
+     * @return true if every loop finished within the timeout
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        shuttingDown = true;
+        for (RideLoop loop : rides.values()) {
+            loop.stop();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        boolean allStopped = true;
+        for (RideLoop loop : rides.values()) {
+            long remaining = deadline - System.nanoTime();
+            if (!loop.join(Math.max(remaining, 0))) {
+                allStopped = false;
+            }
+        }
+        return allStopped;
+    }
+
+    // Shutdown with the default timeout (for try-with-resources)
+    @Override
+    public void close() {
+        try {
+            shutdown(DEFAULT_SHUTDOWN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Park{name='%s', rides=%d, cycles=%d, riders=%d}",
+                parkName, rides.size(), getTotalCycles(), getTotalRiders());
+    }
+
+    /** Cycle loop of one ride, run on a virtual thread */
+    private static final class RideLoop implements Runnable {
+        private final Ride ride;
+        private final long intervalNanos;
+        private final long maxBackoffNanos;
+        private volatile boolean running = true;
+        private volatile RideLoopState state = RideLoopState.WAITING;
+        private volatile long cycles;  // Written only by the loop thread
+        private volatile long riders;
+        private Thread thread;
+
+        RideLoop(Ride ride, long intervalNanos, long maxBackoffNanos) {
+            this.ride = ride;
+            this.intervalNanos = intervalNanos;
+            this.maxBackoffNanos = maxBackoffNanos;
+        }
+
+        synchronized void start() {
+            if (thread == null && running) {
+                thread = Thread.ofVirtual().name("ride-" + ride.getRideName()).start(this);
+            }
+        }
+
+        void stop() {
+            running = false;
+            wake();
+        }
+
+        void wake() {
+            Thread current = thread;
+            if (current != null) {
+                LockSupport.unpark(current);
+            }
+        }
+
+        boolean join(long timeoutNanos) throws InterruptedException {
+            Thread current;
+            synchronized (this) {
+                current = thread;
+            }
+            if (current == null) {
+                state = RideLoopState.STOPPED;
+                return true;
+            }
+            return current.join(Duration.ofNanos(Math.max(timeoutNanos, 1)));
+        }
+
+        @Override
+        public void run() {
+            long backoff = Math.max(intervalNanos, 1);
+            try {
+                while (running) {
+                    long cycleStart = System.nanoTime();
+                    int boarded;
+                    try {
+                        boarded = ride.tryRunOneCycle();
+                    } catch (RuntimeException e) {
+                        // A failing listener or comparator must not kill the loop
+                        ride.getEventListener().onEvent(new RideEvent.Notice(ride.getRideName(),
+                                "❌ Error in ride loop: " + e));
+                        boarded = 0;
+                    }
+                    if (boarded > 0) {
+                        cycles++;
+                        riders += boarded;
+                        setState(RideLoopState.RUNNING);
+                        backoff = Math.max(intervalNanos, 1);
+                        sleepUntil(cycleStart + intervalNanos, false);
+                    } else {
+                        setState((ride.getOperator() == null) ? RideLoopState.NO_OPERATOR : RideLoopState.QUEUE_EMPTY);
+                        sleepUntil(System.nanoTime() + backoff, true);
+                        backoff = Math.min(backoff * 2, maxBackoffNanos);
+                    }
+                }
+            } finally {
+                setState(RideLoopState.STOPPED);
+            }
+        }
+
+        private void setState(RideLoopState next) {
+            if (state != next) {
+                state = next;
+                ride.getEventListener().onEvent(new RideEvent.RideStateChanged(ride.getRideName(), next));
+            }
+        }
+
+        // Parks until the deadline or stop(); an idle ride also returns on wake() so new visitors board early
+        private void sleepUntil(long deadline, boolean wakeable) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                Thread.yield();  // Zero interval: let other ride loops share the carrier
+                return;
+            }
+            while (running && remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (wakeable) {
+                    return;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "RideLoop{" + ride.getRideName() + ", " + state + ", " + TimeUnit.NANOSECONDS.toMillis(intervalNanos) + " ms}";
+        }
+    }
+}
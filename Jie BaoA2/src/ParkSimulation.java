@@ -0,0 +1,257 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Discrete-event simulation of a park day for capacity planning
+ * Drives real Ride objects on a simulated clock: visitors arrive according to each
+ * ride's ArrivalProcess and join its queue, a ride dispatches whenever it is free,
+ * staffed and has someone waiting (boarding through Ride.tryRunOneCycle), and each
+ * cycle occupies the ride for its cycle duration. Operator shifts assign and remove the
+ * ride's operator; a cycle already running when a shift ends is completed.
+ *
+ * Events are kept in a priority queue ordered by (time, insertion order), and every
+ * random draw comes from one SplittableRandom seeded by the caller, so the same seed
+ * always produces the same report. Arrivals stop at closing time and no cycle starts
+ * after it; visitors still waiting are reported as left in queue.
+ *
+ * Wait times are looked up by visitor id when a rider boards (the riders of a cycle are the
+ * newest entries of the ride's history), so they stay right for queues that board out of
+ * arrival order (QueuePolicy.TIERED) and for visitors the queue rejects. Visitors already
+ * queued when the run starts count as arriving at opening.
+ *
+ * For days with millions of visitors, give rides a ColumnarRideHistory and the
+ * NO_OP event listener, otherwise history and console output dominate the run time.
+ */
+public class ParkSimulation {
+    private static final String[] MEMBERSHIP_LEVELS = {"Gold", "Silver", "Standard", "Standard", "Basic"};
+
+    private static final int ARRIVAL = 0;
+    private static final int CYCLE_END = 1;
+    private static final int SHIFT_START = 2;
+    private static final int SHIFT_END = 3;
+
+    private final long seed;
+    private final long closingTime;
+    private final Map<String, SimulatedRide> rides = new LinkedHashMap<>();
+    private PriorityQueue<Event> calendar;  // Event calendar of the current run
+    private long nextSequence;
+
+    // Constructor with the seed for all random draws and the length of the day
+    public ParkSimulation(long seed, Duration openingHours) {
+        if (openingHours == null || openingHours.isNegative() || openingHours.isZero()) {
+            throw new IllegalArgumentException("Opening hours must be positive");
+        }
+        this.seed = seed;
+        this.closingTime = openingHours.toMillis();
+    }
+
+    /**
+     * Add a ride to the simulation
+     * The ride keeps its current operator unless shifts are added for it.
+     * @param cycleDuration how long one cycle occupies the ride
+     * @param arrivals      arrival process of visitors queuing for this ride
+     */
+    public void addRide(Ride ride, Duration cycleDuration, ArrivalProcess arrivals) {
+        if (ride == null || arrivals == null || cycleDuration == null || cycleDuration.toMillis() <= 0) {
+            throw new IllegalArgumentException("Ride, arrival process and a positive cycle duration are required");
+        }
+        if (rides.containsKey(ride.getRideName())) {
+            throw new IllegalArgumentException("Ride already in simulation: " + ride.getRideName());
+        }
+        rides.put(ride.getRideName(), new SimulatedRide(ride, cycleDuration.toMillis(), arrivals));
+    }
+
+    /**
+     * Staff a ride with an operator from start to end (offsets from opening)
+     * A ride with shifts has no operator outside them.
+     */
+    public void addShift(String rideName, Employee operator, Duration start, Duration end) {
+        SimulatedRide ride = rides.get(rideName);
+        if (ride == null) {
+            throw new IllegalArgumentException("No ride named " + rideName + " in simulation");
+        }
+        if (operator == null || start == null || end == null || start.isNegative() || end.compareTo(start) <= 0) {
+            throw new IllegalArgumentException("Shift needs an operator and start < end");
+        }
+        ride.shifts.add(new Shift(operator, start.toMillis(), end.toMillis()));
+    }
+
+    /**
+     * Run one simulated day
+     * Rides are changed by the run (queues, histories, cycle counts, operators), so run a
+     * simulation once per set of freshly created rides.
+     */
+    public SimulationReport run() {
+        long wallStart = System.nanoTime();
+        SplittableRandom root = new SplittableRandom(seed);
+        calendar = new PriorityQueue<>();
+        nextSequence = 0;
+
+        for (SimulatedRide ride : rides.values()) {
+            ride.random = root.split();  // One stream per ride, in registration order
+            ride.staffedMillis = (ride.shifts.isEmpty() && ride.ride.getOperator() != null) ? closingTime : 0;
+            if (!ride.shifts.isEmpty()) {
+                ride.ride.setOperator(null);
+                for (Shift shift : ride.shifts) {
+                    schedule(shift.start, SHIFT_START, ride, shift.operator);
+                    schedule(shift.end, SHIFT_END, ride, shift.operator);
+                }
+            }
+            long first = ride.arrivals.nextArrival(0, ride.random);
+            if (first < closingTime) {
+                schedule(first, ARRIVAL, ride, null);
+            }
+        }
+
+        long events = 0;
+        Event event;
+        while ((event = calendar.poll()) != null) {
+            events++;
+            long now = event.time;
+            SimulatedRide ride = event.ride;
+            switch (event.type) {
+                case ARRIVAL -> {
+                    Visitor visitor = newVisitor(ride);
+                    int queued = ride.ride.getWaitingQueueSize();
+                    ride.ride.addVisitorToQueue(visitor);
+                    if (ride.ride.getWaitingQueueSize() > queued) {
+                        ride.arrivalTimes.put(visitor.getId(), now);  // Not recorded if the queue rejected it
+                    }
+                    ride.maxQueueLength = Math.max(ride.maxQueueLength, ride.ride.getWaitingQueueSize());
+                    long next = ride.arrivals.nextArrival(now, ride.random);
+                    if (next < closingTime) {
+                        schedule(Math.max(next, now), ARRIVAL, ride, null);
+                    }
+                }
+                case CYCLE_END -> ride.busy = false;
+                case SHIFT_START -> {
+                    if (ride.ride.getOperator() != null) {
+                        ride.addStaffedTime(now, closingTime);  // Overlapping shift takes over
+                    }
+                    ride.ride.setOperator(event.operator);
+                    ride.shiftStartedAt = now;
+                }
+                case SHIFT_END -> {
+                    if (ride.ride.getOperator() == event.operator) {
+                        ride.addStaffedTime(now, closingTime);
+                        ride.ride.setOperator(null);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown event type " + event.type);
+            }
+            tryDispatch(ride, now);
+        }
+
+        List<SimulationReport.RideResult> results = new ArrayList<>(rides.size());
+        for (SimulatedRide ride : rides.values()) {
+            results.add(new SimulationReport.RideResult(ride.ride.getRideName(), ride.arrived, ride.riders,
+                    ride.cycles, ride.ride.getWaitingQueueSize(), ride.maxQueueLength, ride.waitTimes,
+                    ride.busyMillis, ride.staffedMillis, closingTime, ride.ride.getMaxRider()));
+        }
+        calendar = null;
+        return new SimulationReport(seed, closingTime, events, System.nanoTime() - wallStart, results);
+    }
+
+    // Starts a cycle if the ride is free, staffed, open and has visitors waiting
+    private void tryDispatch(SimulatedRide ride, long now) {
+        if (ride.busy || now >= closingTime || ride.ride.getWaitingQueueSize() == 0) {
+            return;
+        }
+        int boarded = ride.ride.tryRunOneCycle();
+        if (boarded == 0) {
+            return;  // No operator
+        }
+        HistoryStore history = ride.ride.getHistoryStore();
+        for (int i = history.size() - boarded; i < history.size(); i++) {
+            Long arrivedAt = ride.arrivalTimes.remove(history.get(i).getId());
+            ride.waitTimes.record(now - ((arrivedAt != null) ? arrivedAt : 0));
+        }
+        ride.busy = true;
+        ride.cycles++;
+        ride.riders += boarded;
+        ride.busyMillis += ride.cycleMillis;
+        schedule(now + ride.cycleMillis, CYCLE_END, ride, null);
+    }
+
+    private Visitor newVisitor(SimulatedRide ride) {
+        long number = ++ride.arrived;
+        SplittableRandom random = ride.random;
+        return new Visitor("Guest" + number, 5 + random.nextInt(71), ride.ride.getRideName() + "-" + number,
+                MEMBERSHIP_LEVELS[random.nextInt(MEMBERSHIP_LEVELS.length)], 1);
+    }
+
+    private void schedule(long time, int type, SimulatedRide ride, Employee operator) {
+        calendar.add(new Event(time, nextSequence++, type, ride, operator));
+    }
+
+    /** Calendar entry; ties on time are broken by insertion order so runs are deterministic */
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final int type;
+        final SimulatedRide ride;
+        final Employee operator;
+
+        Event(long time, long sequence, int type, SimulatedRide ride, Employee operator) {
+            this.time = time;
+            this.sequence = sequence;
+            this.type = type;
+            this.ride = ride;
+            this.operator = operator;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int compare = Long.compare(time, other.time);
+            return (compare != 0) ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Shift {
+        final Employee operator;
+        final long start;
+        final long end;
+
+        Shift(Employee operator, long start, long end) {
+            this.operator = operator;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** Simulation state of one ride */
+    private static final class SimulatedRide {
+        final Ride ride;
+        final long cycleMillis;
+        final ArrivalProcess arrivals;
+        final List<Shift> shifts = new ArrayList<>();
+        final Map<String, Long> arrivalTimes = new HashMap<>();  // Queued visitor id -> arrival time
+        final Histogram waitTimes = new Histogram();
+        SplittableRandom random;
+        boolean busy;
+        long arrived;
+        long riders;
+        long cycles;
+        long busyMillis;
+        long staffedMillis;
+        long shiftStartedAt;
+        int maxQueueLength;
+
+        SimulatedRide(Ride ride, long cycleMillis, ArrivalProcess arrivals) {
+            this.ride = ride;
+            this.cycleMillis = cycleMillis;
+            this.arrivals = arrivals;
+        }
+
+        // Staffed time of the current shift up to now, counting only opening hours
+        void addStaffedTime(long now, long closingTime) {
+            staffedMillis += Math.max(0, Math.min(now, closingTime) - Math.min(shiftStartedAt, closingTime));
+        }
+    }
+}
@@ -39,7 +39,7 @@ public abstract class Person {
         if (age >= 0 && age <= 120) {
             this.age = age;
         } else {
-            System.out.println("⚠️  Invalid age: " + age + ". Age must be between 0 and 120.");
+            RideEventBus.publish(new RideEvent.InvalidAge(age));
         }
     }
 
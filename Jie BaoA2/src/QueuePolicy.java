@@ -0,0 +1,20 @@
+/**
+ * Waiting queue implementations a Ride can be created with
+ */
+public enum QueuePolicy {
+    /** Single-threaded FIFO queue (default) */
+    FIFO,
+
+    /**
+     * Lock-free FIFO queue for rides fed by several entry gates.
+     * Any thread may add visitors; removing visitors, running cycles and clearing
+     * the queue must happen on a single cycle thread.
+     */
+    CONCURRENT,
+
+    /**
+     * Fast-pass boarding: one FIFO per membership tier, higher tiers board first in a
+     * weighted-fair ratio (see TieredVisitorQueue). Single-threaded like FIFO.
+     */
+    TIERED
+}
@@ -0,0 +1,44 @@
+import java.time.Duration;
+
+/**
+ * A visitor's place in a ride's waiting queue (see RideInterface.getQueuePosition)
+ * For a TIERED queue the position counts only visitors of the same membership tier.
+ */
+public class QueuePosition {
+    private final String visitorId;
+    private final long position;
+    private final long cyclesUntilBoarding;
+    private final Duration estimatedWait;
+
+    public QueuePosition(String visitorId, long position, long cyclesUntilBoarding, Duration estimatedWait) {
+        this.visitorId = visitorId;
+        this.position = position;
+        this.cyclesUntilBoarding = cyclesUntilBoarding;
+        this.estimatedWait = estimatedWait;
+    }
+
+    public String getVisitorId() {
+        return visitorId;
+    }
+
+    // 1 for the next visitor to board
+    public long getPosition() {
+        return position;
+    }
+
+    // Number of the cycle that should board the visitor (1 = the next cycle)
+    public long getCyclesUntilBoarding() {
+        return cyclesUntilBoarding;
+    }
+
+    // cyclesUntilBoarding times the ride's average cycle time; null until that average is known
+    public Duration getEstimatedWait() {
+        return estimatedWait;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueuePosition{visitorId='%s', position=%d, cyclesUntilBoarding=%d, estimatedWait=%s}",
+                visitorId, position, cyclesUntilBoarding, (estimatedWait != null) ? estimatedWait : "unknown");
+    }
+}
@@ -2,18 +2,33 @@ import exceptions.FileOperationException;
 
 import java.util.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 
 /**
  * Ride class implementing RideInterface
  * Manages queue, history, and ride operations for a theme park ride
+ * Operations report what they did as RideEvents (see setEventListener) instead of printing;
+ * only printQueue and printRideHistory write to the console directly.
  */
 public class Ride implements RideInterface {
     private String rideName;
-    private Employee operator;
+    private volatile Employee operator;  // volatile: a Park may reassign it while the ride's loop runs
     private int maxRider;
     private int numOfCycles;
-    private final Queue<Visitor> waitingQueue;  // Queue for waiting visitors
-    private final LinkedList<Visitor> rideHistory;  // History of visitors who have taken the ride
+    private final VisitorQueue waitingQueue;  // Queue for waiting visitors
+    private final HistoryStore rideHistory;  // History of visitors who have taken the ride
+    private final RideMetrics metrics;  // Counters and latency histograms of this ride
+    private volatile long averageCycleNanos;  // Running average time between back-to-back cycles, 0 = unknown
+    private long lastCycleStart;
+    private boolean backlogAfterLastCycle;  // Visitors were left waiting by the last cycle
+    private RideEventListener eventListener;  // null means the park-wide RideEventBus listener
+    private int historyGeneration;  // Bumped when the history is reordered or cleared (breaks append order)
+    private final Map<String, Integer> exportGenerations = new HashMap<>();  // Export file -> generation it holds
+    private volatile RideJournal journal;  // Write-ahead journal, null when not journaling
 
     // Default constructor
     public Ride() {
@@ -21,16 +36,56 @@ public class Ride implements RideInterface {
         this.operator = null;
         this.maxRider = 2;
         this.numOfCycles = 0;
-        this.waitingQueue = new LinkedList<>();
-        this.rideHistory = new LinkedList<>();
+        this.waitingQueue = new FifoVisitorQueue();
+        this.rideHistory = new RideHistory();
+        this.metrics = new RideMetrics(waitingQueue::size);
     }
 
     // Parameterized constructor (for basic initialization)
     public Ride(String rideName, Employee operator, int maxRider) {
-        this();
+        this(rideName, operator, maxRider, QueuePolicy.FIFO);
+    }
+
+    // Constructor selecting the waiting queue implementation
+    // Use QueuePolicy.CONCURRENT when several gate threads add visitors to the same ride
+    public Ride(String rideName, Employee operator, int maxRider, QueuePolicy queuePolicy) {
+        this(rideName, operator, maxRider, newQueue(queuePolicy), new RideHistory());
+    }
+
+    /**
+     * Ride selecting both the waiting queue and the history store
+     * Use a ColumnarRideHistory for rides that keep millions of history entries.
+     * (A factory rather than a constructor, so new Ride(name, operator, n, null, null) still
+     * picks the Queue/List constructor.)
+     */
+    public static Ride withHistoryStore(String rideName, Employee operator, int maxRider, QueuePolicy queuePolicy,
+                                        HistoryStore historyStore) {
+        return new Ride(rideName, operator, maxRider, newQueue(queuePolicy), historyStore);
+    }
+
+    // Ride with a configured waiting queue (e.g. a TieredVisitorQueue with custom weights)
+    public static Ride withQueue(String rideName, Employee operator, int maxRider, VisitorQueue waitingQueue,
+                                 HistoryStore historyStore) {
+        return new Ride(rideName, operator, maxRider, waitingQueue, historyStore);
+    }
+
+    private Ride(String rideName, Employee operator, int maxRider, VisitorQueue waitingQueue,
+                 HistoryStore historyStore) {
         this.rideName = rideName;
         this.operator = operator;
         this.maxRider = maxRider;
+        this.numOfCycles = 0;
+        this.waitingQueue = (waitingQueue != null) ? waitingQueue : new FifoVisitorQueue();
+        this.rideHistory = (historyStore != null) ? historyStore : new RideHistory();
+        this.metrics = new RideMetrics(this.waitingQueue::size);
+        metrics.recordEnqueued(this.waitingQueue.size());
+    }
+
+    private static VisitorQueue newQueue(QueuePolicy queuePolicy) {
+        if (queuePolicy == QueuePolicy.CONCURRENT) {
+            return new MpscVisitorQueue();
+        }
+        return (queuePolicy == QueuePolicy.TIERED) ? new TieredVisitorQueue() : new FifoVisitorQueue();
     }
 
     // Second constructor with advanced initialization (as required in Part 1)
@@ -43,19 +98,28 @@ public class Ride implements RideInterface {
         if (maxRider >= 1) {
             this.maxRider = maxRider;
         } else {
-            System.out.println("⚠️  Invalid maxRider: " + maxRider + ". Setting to default value 2.");
+            publish(new RideEvent.Notice(this.rideName, "⚠️  Invalid maxRider: " + maxRider + ". Setting to default value 2."));
             this.maxRider = 2;
         }
 
         this.numOfCycles = 0;
 
         // Initialize waiting queue with provided initial queue or empty queue
-        this.waitingQueue = (initialQueue != null) ?
-                new LinkedList<>(initialQueue) : new LinkedList<>();
+        this.waitingQueue = new FifoVisitorQueue();
+        if (initialQueue != null) {
+            for (Visitor visitor : initialQueue) {
+                if (visitor != null && !waitingQueue.offer(visitor)) {
+                    publish(new RideEvent.Notice(this.rideName, "⚠️  Duplicate visitor id '" + visitor.getId()
+                            + "' in initial queue. Skipped."));
+                }
+            }
+        }
 
         // Initialize ride history with provided initial history or empty list
         this.rideHistory = (initialHistory != null) ?
-                new LinkedList<>(initialHistory) : new LinkedList<>();
+                new RideHistory(initialHistory) : new RideHistory();
+        this.metrics = new RideMetrics(waitingQueue::size);
+        metrics.recordEnqueued(waitingQueue.size());
     }
 
     // Getters and setters
@@ -69,7 +133,7 @@ public class Ride implements RideInterface {
         if (rideName != null && !rideName.trim().isEmpty()) {
             this.rideName = rideName;
         } else {
-            System.out.println("⚠️  Invalid ride name. Name cannot be null or empty.");
+            publish(new RideEvent.Notice(this.rideName, "⚠️  Invalid ride name. Name cannot be null or empty."));
         }
     }
 
@@ -93,9 +157,9 @@ public class Ride implements RideInterface {
         // Validate maxRider is at least 1 (as required in Part 5)
         if (maxRider >= 1) {
             this.maxRider = maxRider;
-            System.out.println("✅ Max riders for " + rideName + " set to: " + maxRider);
+            publish(new RideEvent.MaxRiderChanged(rideName, maxRider));
         } else {
-            System.out.println("❌ Error: Max rider must be at least 1. Current value remains: " + this.maxRider);
+            publish(new RideEvent.Notice(rideName, "❌ Error: Max rider must be at least 1. Current value remains: " + this.maxRider));
         }
     }
 
@@ -108,25 +172,114 @@ public class Ride implements RideInterface {
     @Override
     public void addVisitorToQueue(Visitor visitor) {
         if (visitor == null) {
-            System.out.println("❌ Error: Cannot add null visitor to queue.");
+            publish(new RideEvent.Notice(rideName, "❌ Error: Cannot add null visitor to queue."));
             return;
         }
-        boolean added = waitingQueue.offer(visitor);
-        if (added) {
-            System.out.println("✅ Visitor '" + visitor.getName() + "' added to queue for " + rideName);
-        } else {
-            System.out.println("❌ Failed to add visitor '" + visitor.getName() + "' to queue");
+        if (offerTicket(visitor) == VisitorQueue.NO_TICKET) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Visitor '" + visitor.getName() + "' (ID: "
+                    + visitor.getId() + ") is already in the queue."));
+            return;
         }
+        metrics.recordEnqueued(1);
+        publish(new RideEvent.VisitorQueued(rideName, visitor));
+    }
+
+    // Queues and journals the visitor as one step, so the journal has the queue's order
+    private long offerTicket(Visitor visitor) {
+        RideJournal journal = this.journal;
+        if (journal == null) {
+            return waitingQueue.offerTicket(visitor);
+        }
+        long ticket;
+        long sequence;
+        journal.lock();
+        try {
+            ticket = waitingQueue.offerTicket(visitor);
+            if (ticket == VisitorQueue.NO_TICKET || this.journal != journal) {
+                return ticket;  // Duplicate, or the journal was closed meanwhile
+            }
+            sequence = journal.appendEnqueue(visitor);
+        } finally {
+            journal.unlock();
+        }
+        commit(journal, sequence);  // Outside the lock so concurrent gates share one fsync
+        return ticket;
+    }
+
+    // A visitor abandoning the line; O(1) through the queue's id index
+    // With QueuePolicy.CONCURRENT call this on the cycle thread only
+    @Override
+    public boolean removeVisitorFromQueue(Visitor visitor) {
+        if (visitor == null) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Cannot remove null visitor from queue."));
+            return false;
+        }
+        if (!waitingQueue.removeVisitor(VisitorQueue.idOf(visitor))) {
+            publish(new RideEvent.Notice(rideName, "ℹ️ Visitor '" + visitor.getName() + "' is not in the queue."));
+            return false;
+        }
+        metrics.recordRemoved(1);
+        RideJournal journal = this.journal;
+        if (journal != null) {
+            commit(journal, journal.appendLeave(visitor));
+        }
+        publish(new RideEvent.VisitorLeftQueue(rideName, visitor));
+        return true;
+    }
+
+    // O(1) lookup by visitor id; callable from any thread
+    @Override
+    public boolean isQueued(Visitor visitor) {
+        if (visitor == null) {
+            return false;
+        }
+        String id = VisitorQueue.idOf(visitor);
+        return id != null && waitingQueue.ticketOf(id) != VisitorQueue.NO_TICKET;
+    }
+
+    @Override
+    public QueuePosition getQueuePosition(String visitorId) {
+        if (visitorId == null) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Visitor id cannot be null."));
+            return null;
+        }
+        long ticket = waitingQueue.ticketOf(visitorId);
+        if (ticket == VisitorQueue.NO_TICKET) {
+            return null;
+        }
+        long ahead = waitingQueue.ticketsAhead(ticket);
+        if (ahead < 0) {
+            return null;  // Boarded since the lookup
+        }
+        long position = ahead + 1;
+        double seatsPerCycle = maxRider * waitingQueue.boardingShare(ticket);
+        long cycles = (long) Math.ceil(position / seatsPerCycle);
+        long average = averageCycleNanos;
+        Duration estimatedWait = (average > 0) ? Duration.ofNanos(average).multipliedBy(cycles) : null;
+        return new QueuePosition(visitorId, position, cycles, estimatedWait);
+    }
+
+    /**
+     * Running average of the time between cycles, measured only between back-to-back
+     * single cycles (runOneCycle / tryRunOneCycle) that left visitors waiting
+     * @return the average, or null before two such cycles have run
+     */
+    public Duration getAverageCycleTime() {
+        long average = averageCycleNanos;
+        return (average > 0) ? Duration.ofNanos(average) : null;
     }
 
     @Override
     public void removeVisitorFromQueue() {
         Visitor visitor = waitingQueue.poll();
         if (visitor != null) {
-            System.out.println("✅ Visitor '" + visitor.getName() + "' removed from queue");
-        } else {
-            System.out.println("ℹ️ Queue is empty. No visitor to remove.");
+            metrics.recordRemoved(1);
+            RideJournal journal = this.journal;
+            if (journal != null) {
+                commit(journal, journal.appendDequeue(visitor));
+            }
         }
+        publish(new RideEvent.VisitorDequeued(rideName, visitor));
     }
 
     @Override
@@ -147,31 +300,35 @@ public class Ride implements RideInterface {
     @Override
     public void addVisitorToHistory(Visitor visitor) {
         if (visitor == null) {
-            System.out.println("❌ Error: Cannot add null visitor to history.");
+            publish(new RideEvent.Notice(rideName, "❌ Error: Cannot add null visitor to history."));
             return;
         }
         boolean added = rideHistory.add(visitor);
         if (added) {
-            System.out.println("✅ Visitor '" + visitor.getName() + "' added to ride history of " + rideName);
+            RideJournal journal = this.journal;
+            if (journal != null && commit(journal, journal.appendHistoryAdd(visitor))) {
+                checkpointIfDue(journal);
+            }
+            publish(new RideEvent.HistoryAdded(rideName, visitor));
         } else {
-            System.out.println("❌ Failed to add visitor '" + visitor.getName() + "' to ride history");
+            publish(new RideEvent.Notice(rideName, "❌ Failed to add visitor '" + visitor.getName() + "' to ride history"));
         }
     }
 
     @Override
     public void checkVisitorFromHistory(Visitor visitor) {
         if (visitor == null) {
-            System.out.println("❌ Error: Cannot check null visitor.");
+            publish(new RideEvent.Notice(rideName, "❌ Error: Cannot check null visitor."));
             return;
         }
         boolean found = rideHistory.contains(visitor);
-        System.out.println("🔍 Visitor '" + visitor.getName() + "' in ride history of " + rideName + ": " + found);
+        publish(new RideEvent.HistoryChecked(rideName, visitor, found));
     }
 
     @Override
     public int numberOfVisitors() {
         int count = rideHistory.size();
-        System.out.println("📊 Number of visitors in ride history of " + rideName + ": " + count);
+        publish(new RideEvent.VisitorsCounted(rideName, count));
         return count;
     }
 
@@ -194,6 +351,147 @@ public class Ride implements RideInterface {
     // Part 5: Run ride cycle method
     @Override
     public void runOneCycle() throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException {
+        checkReadyToRun();
+        runCycle(operator);
+    }
+
+    // Non-throwing cycle for schedulers: a missing operator or an empty queue returns 0 instead
+    @Override
+    public int tryRunOneCycle() {
+        Employee current = operator;
+        if (current == null || waitingQueue.isEmpty()) {
+            backlogAfterLastCycle = false;  // Idle time is not cycle time
+            return 0;
+        }
+        return runCycle(current);
+    }
+
+    private int runCycle(Employee current) {
+        long start = System.nanoTime();
+        if (backlogAfterLastCycle) {
+            long interval = start - lastCycleStart;
+            long average = averageCycleNanos;
+            averageCycleNanos = (average == 0) ? interval : average + (interval - average) / 8;
+        }
+        lastCycleStart = start;
+        metrics.recordQueueDepth(waitingQueue.size());
+        int ridersProcessed = 0;
+        List<Visitor> currentRiders = new ArrayList<>(Math.min(maxRider, 16));
+
+        // Process visitors from queue up to maxRider limit
+        Visitor visitor;
+        while (ridersProcessed < maxRider && (visitor = waitingQueue.poll()) != null) {
+            recordWait(start);
+            rideHistory.add(visitor);
+            currentRiders.add(visitor);
+            ridersProcessed++;
+        }
+
+        if (RideMetrics.timesCycle(numOfCycles)) {
+            metrics.recordCycleLatency(System.nanoTime() - start);
+        }
+        numOfCycles++;
+        backlogAfterLastCycle = !waitingQueue.isEmpty();
+        metrics.recordCycle(ridersProcessed);
+        RideJournal journal = this.journal;
+        if (journal != null && commit(journal, journal.appendBoard(currentRiders))) {
+            checkpointIfDue(journal);
+        }
+        publish(new RideEvent.CycleCompleted(rideName, current.getName(), maxRider, currentRiders,
+                waitingQueue.size(), numOfCycles, rideHistory.size()));
+        return ridersProcessed;
+    }
+
+    // Bulk cycle execution: validates once, then boards riders cycle after cycle without per-rider output
+    @Override
+    public CycleSummary runCycles(int cycles) throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException {
+        if (cycles < 1) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Number of cycles must be at least 1."));
+            return new CycleSummary(0, 0, waitingQueue.size());
+        }
+        checkReadyToRun();
+
+        // Reserve history space for everyone who can board in this batch
+        long capacity = (long) cycles * maxRider;
+        rideHistory.ensureCapacity((int) Math.min(capacity, waitingQueue.size()));
+
+        int cyclesRun = 0;
+        long ridersProcessed = 0;
+        RideJournal journal = this.journal;
+        List<Visitor> riders = (journal != null) ? new ArrayList<>(Math.min(maxRider, 1024)) : null;
+        long sequence = 0;
+        long synced = 0;
+        while (cyclesRun < cycles) {
+            int boarded = boardRiders(maxRider, riders, numOfCycles + cyclesRun);
+            if (boarded == 0) {
+                break;  // Queue ran empty, do not count an empty cycle
+            }
+            if (journal != null) {
+                // One record per cycle, synced once per batch of GROUP_COMMIT_BYTES and at the end
+                sequence = journal.appendBoard(riders);
+                riders.clear();
+                if (sequence - synced >= RideJournal.GROUP_COMMIT_BYTES) {
+                    if (!commit(journal, sequence)) {
+                        journal = null;
+                        riders = null;
+                    }
+                    synced = sequence;
+                }
+            }
+            ridersProcessed += boarded;
+            cyclesRun++;
+        }
+        numOfCycles += cyclesRun;
+        backlogAfterLastCycle = false;  // A batch is not a real-time cycle interval
+        if (journal != null && commit(journal, sequence)) {
+            checkpointIfDue(journal);
+        }
+
+        CycleSummary summary = new CycleSummary(ridersProcessed, cyclesRun, waitingQueue.size());
+        publish(new RideEvent.CyclesCompleted(rideName, summary));
+        return summary;
+    }
+
+    @Override
+    public CycleSummary runUntilEmpty() throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException {
+        return runCycles(Integer.MAX_VALUE);
+    }
+
+    // Moves up to limit visitors from the head of the queue into the history, returns how many moved
+    // riders, if not null, also receives them (for the journal); cycle is the ride's cycle number
+    private int boardRiders(int limit, List<Visitor> riders, long cycle) {
+        long start = System.nanoTime();
+        int depth = waitingQueue.size();
+        int boarded = 0;
+        Visitor visitor;
+        while (boarded < limit && (visitor = waitingQueue.poll()) != null) {
+            recordWait(start);
+            rideHistory.add(visitor);
+            if (riders != null) {
+                riders.add(visitor);
+            }
+            boarded++;
+        }
+        if (boarded > 0) {
+            metrics.recordQueueDepth(depth);
+            metrics.recordCycle(boarded);
+            if (RideMetrics.timesCycle(cycle)) {
+                metrics.recordCycleLatency(System.nanoTime() - start);
+            }
+        }
+        return boarded;
+    }
+
+    // Wait of the visitor just polled, if the queue sampled its enqueue time
+    private void recordWait(long now) {
+        long enqueued = waitingQueue.lastPolledEnqueueNanos();
+        if (enqueued != VisitorQueue.NOT_TIMED) {
+            metrics.recordWait(now - enqueued);
+        }
+    }
+
+    // Throws if the ride cannot run a cycle right now
+    private void checkReadyToRun() throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException {
         // Check if operator is assigned
         if (operator == null) {
             // Create root cause exception with additional context
@@ -227,38 +525,17 @@ public class Ride implements RideInterface {
                     rootCause
             );
         }
-
-        System.out.println("🎢 Running ride cycle for " + rideName + " (max riders: " + maxRider + ")...");
-        System.out.println("   Operator: " + operator.getName());
-
-        int ridersProcessed = 0;
-        List<Visitor> currentRiders = new ArrayList<>();
-
-        // Process visitors from queue up to maxRider limit
-        while (ridersProcessed < maxRider && !waitingQueue.isEmpty()) {
-            Visitor visitor = waitingQueue.poll();
-            rideHistory.add(visitor);
-            currentRiders.add(visitor);
-            ridersProcessed++;
-            System.out.println("   ✅ " + visitor.getName() + " has taken the ride");
-        }
-
-        // Use currentRiders to avoid "unused" warning
-        if (!currentRiders.isEmpty()) {
-            System.out.println("   Current riders list processed successfully");
-        }
-
-        numOfCycles++;
-        System.out.println("🎉 Ride cycle completed successfully!");
-        System.out.println("   Riders processed: " + ridersProcessed);
-        System.out.println("   Remaining in queue: " + waitingQueue.size());
-        System.out.println("   Total cycles run: " + numOfCycles);
-        System.out.println("   Total visitors in history: " + rideHistory.size());
     }
 
     // Part 6: Export ride history to file
     @Override
     public void exportRideHistory(String filename) throws exceptions.FileOperationException {
+        exportRideHistory(filename, false, false);
+    }
+
+    @Override
+    public void exportRideHistory(String filename, boolean append, boolean compress)
+            throws exceptions.FileOperationException {
         if (filename == null || filename.trim().isEmpty()) {
             Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
             throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
@@ -266,32 +543,17 @@ public class Ride implements RideInterface {
 
         File file = new File(filename);
         try {
-            // Create parent directories if they don't exist
-            File parentDir = file.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                boolean dirsCreated = parentDir.mkdirs();
-                if (dirsCreated) {
-                    System.out.println("📁 Created directory: " + parentDir.getAbsolutePath());
-                } else if (!parentDir.exists()) {
-                    throw new IOException("Failed to create directory: " + parentDir.getAbsolutePath());
-                }
-            }
+            createParentDirectories(file);
 
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-                for (Visitor visitor : rideHistory) {
-                    String line = String.join(",",
-                            visitor.getName(),
-                            String.valueOf(visitor.getAge()),
-                            visitor.getId(),
-                            visitor.getMembershipLevel(),
-                            String.valueOf(visitor.getTickets())
-                    );
-                    writer.write(line);
-                    writer.newLine();
+            if (append) {
+                // Appending leaves the bytes already in the file as they are
+                try (CsvHistoryWriter writer = new CsvHistoryWriter(file.toPath(), true, compress)) {
+                    writer.writeAll(rideHistory);
                 }
-                System.out.println("💾 Successfully exported " + rideHistory.size() +
-                        " visitors to file: " + filename);
+            } else {
+                writeReplacing(file.toPath(), compress);
             }
+            publish(new RideEvent.HistoryExported(rideName, filename, rideHistory.size()));
         } catch (IOException e) {
             // Use constructor with Throwable parameter for FileOperationException
             Throwable wrappedCause = new IOException("Export failed for file: " + filename, e);
@@ -304,66 +566,344 @@ public class Ride implements RideInterface {
 
     // Part 7: Import ride history from file
     @Override
-    public void importRideHistory(String filename) throws exceptions.FileOperationException {
+    public HistoryImportResult importRideHistory(String filename) throws exceptions.FileOperationException {
+        return importRideHistory(filename, false);
+    }
+
+    // Parallel import for very large files: ranges of the file are parsed on all cores
+    @Override
+    public HistoryImportResult importRideHistoryParallel(String filename) throws exceptions.FileOperationException {
+        return importRideHistory(filename, true);
+    }
+
+    /**
+     * Lazy import: the file is mapped and its line offsets indexed in one scan, and each row is
+     * decoded only when the history is iterated, sorted, exported or searched
+     * Only a LazyCsvHistory store can hold undecoded rows; any other store imports eagerly.
+     * The file must not be changed in place while the history refers to it. The ride's own
+     * exports replace a file by moving a new one over it, so exporting back to the imported
+     * file is safe: the mapping keeps reading the old file (on Windows the move fails instead).
+     */
+    @Override
+    public HistoryImportResult importRideHistoryLazy(String filename) throws exceptions.FileOperationException {
+        if (!(rideHistory instanceof LazyCsvHistory lazyHistory)) {
+            return importRideHistory(filename, false);
+        }
         if (filename == null || filename.trim().isEmpty()) {
             Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
             throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
         }
 
         File file = getFile(filename);
+        HistoryImportResult result = new HistoryImportResult(filename);
+        int sizeBefore = rideHistory.size();
+        try {
+            lazyHistory.importFile(file.toPath(), result);
+            publish(new RideEvent.HistoryImported(rideName, result));
+            return result;
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Lazy import failed for file: " + filename, e);
+            throw new exceptions.FileOperationException(
+                    "Error importing ride history from '" + filename + "'",
+                    wrappedCause
+            );
+        } finally {
+            if (rideHistory.size() != sizeBefore) {
+                checkpointAfterBulkChange();
+            }
+        }
+    }
 
-        int importedCount = 0;
-        int errorCount = 0;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 0;
-
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                line = line.trim();
-
-                // Skip empty lines
-                if (line.isEmpty()) continue;
-
-                try {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 4) {
-                        String name = parts[0];
-                        int age = Integer.parseInt(parts[1]);
-                        String id = parts[2];
-                        String membership = parts[3];
-                        int tickets = parts.length >= 5 ? Integer.parseInt(parts[4]) : 1;
-
-                        Visitor visitor = new Visitor(name, age, id, membership, tickets);
-                        rideHistory.add(visitor);
-                        importedCount++;
-                    } else {
-                        System.out.println("⚠️  Warning: Invalid format at line " + lineNumber + ": " + line);
-                        errorCount++;
-                    }
-                } catch (NumberFormatException e) {
-                    System.out.println("⚠️  Warning: Invalid number format at line " + lineNumber + ": " + line);
-                    errorCount++;
-                } catch (Exception e) {
-                    System.out.println("⚠️  Warning: Error processing line " + lineNumber + ": " + line);
-                    errorCount++;
+    private HistoryImportResult importRideHistory(String filename, boolean parallel)
+            throws exceptions.FileOperationException {
+        if (filename == null || filename.trim().isEmpty()) {
+            Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
+            throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
+        }
+
+        File file = getFile(filename);
+        HistoryImportResult result = new HistoryImportResult(filename);
+        int sizeBefore = rideHistory.size();
+
+        try {
+            // Malformed lines are counted and collected in the result, not printed
+            CsvHistoryReader reader = new CsvHistoryReader();
+            if (parallel) {
+                reader.readParallel(file.toPath(), rideHistory::add, result);
+            } else {
+                reader.read(file.toPath(), rideHistory::add, result);
+            }
+            publish(new RideEvent.HistoryImported(rideName, result));
+            return result;
+        } catch (IOException e) {
+            // Use constructor with Throwable parameter for FileOperationException
+            Throwable wrappedCause = new IOException("Import failed for file: " + filename, e);
+            throw new exceptions.FileOperationException(
+                    "Error importing ride history from '" + filename + "'",
+                    wrappedCause
+            );
+        } finally {
+            if (rideHistory.size() != sizeBefore) {
+                checkpointAfterBulkChange();  // Cheaper than journaling every imported row
+            }
+        }
+    }
+
+    /**
+     * Incremental CSV export: appends only the history entries added since the last export to this file
+     * The high-water mark is kept in a sidecar checkpoint file (see ExportCheckpoint), so it survives restarts.
+     * The file is rewritten in full instead when there is no valid checkpoint, the file changed
+     * since the checkpoint, or the history was sorted or cleared since this ride last wrote it.
+     * @return number of rows written
+     */
+    @Override
+    public long exportRideHistoryIncremental(String filename) throws exceptions.FileOperationException {
+        if (filename == null || filename.trim().isEmpty()) {
+            Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
+            throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
+        }
+
+        File file = new File(filename);
+        Path path = file.toPath();
+        try {
+            ExportCheckpoint checkpoint = ExportCheckpoint.load(ExportCheckpoint.sidecarFor(path));
+            if (!canAppend(file, checkpoint)) {
+                return compact(file);
+            }
+
+            long from = checkpoint.getRows();
+            long written;
+            try (CsvHistoryWriter writer = new CsvHistoryWriter(path, true, false)) {
+                for (int i = (int) from; i < rideHistory.size(); i++) {
+                    writer.write(rideHistory.get(i));
                 }
+                written = writer.getRowsWritten();
             }
+            saveCheckpoint(file);
+            publish(new RideEvent.HistoryExported(rideName, filename, (int) written));
+            return written;
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Incremental export failed for file: " + filename, e);
+            throw new exceptions.FileOperationException(
+                    "Error exporting ride history to '" + filename + "'",
+                    wrappedCause
+            );
+        }
+    }
 
-            System.out.println("📥 Successfully imported " + importedCount +
-                    " visitors from file: " + filename);
-            if (errorCount > 0) {
-                System.out.println("⚠️  " + errorCount + " lines had errors and were skipped");
+    /**
+     * Rewrite an incremental export file with the whole history and reset its checkpoint
+     * Use after sortRideHistory or clearHistory (incremental exports also do this on their own when needed).
+     * @return number of rows written
+     */
+    @Override
+    public long compactRideHistoryExport(String filename) throws exceptions.FileOperationException {
+        if (filename == null || filename.trim().isEmpty()) {
+            Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
+            throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
+        }
+
+        try {
+            return compact(new File(filename));
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Export compaction failed for file: " + filename, e);
+            throw new exceptions.FileOperationException(
+                    "Error exporting ride history to '" + filename + "'",
+                    wrappedCause
+            );
+        }
+    }
+
+    // Whether the file still holds exactly the first checkpoint.getRows() entries of the current history
+    private boolean canAppend(File file, ExportCheckpoint checkpoint) {
+        if (checkpoint == null || !file.isFile() || file.length() != checkpoint.getBytes()
+                || checkpoint.getRows() > rideHistory.size()) {
+            return false;
+        }
+        // A ride that never wrote this file can only trust it if its history was never reordered
+        Integer writtenGeneration = exportGenerations.get(exportKey(file));
+        int expected = (writtenGeneration != null) ? writtenGeneration : 0;
+        if (expected != historyGeneration) {
+            return false;
+        }
+        int rows = (int) checkpoint.getRows();
+        return rows == 0 || Objects.equals(rideHistory.get(rows - 1).getId(), checkpoint.getLastId());
+    }
+
+    private long compact(File file) throws IOException {
+        createParentDirectories(file);
+        long written = writeReplacing(file.toPath(), false);
+        saveCheckpoint(file);
+        publish(new RideEvent.HistoryExported(rideName, file.getPath(), (int) written));
+        return written;
+    }
+
+    // Writes the whole history to a temporary file and moves it over path, so path is never
+    // truncated in place: this history may be a LazyCsvHistory still reading its mapping of path
+    private long writeReplacing(Path path, boolean compress) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long written;
+        try (CsvHistoryWriter writer = new CsvHistoryWriter(temporary, false, compress)) {
+            writer.writeAll(rideHistory);
+            written = writer.getRowsWritten();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    private void saveCheckpoint(File file) throws IOException {
+        int rows = rideHistory.size();
+        String lastId = (rows > 0) ? rideHistory.get(rows - 1).getId() : "";
+        new ExportCheckpoint(rows, file.length(), lastId).save(ExportCheckpoint.sidecarFor(file.toPath()));
+        exportGenerations.put(exportKey(file), historyGeneration);
+    }
+
+    private static String exportKey(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    // Export ride history in the compact binary format (see BinaryHistoryFormat)
+    @Override
+    public void exportRideHistoryBinary(String filename) throws exceptions.FileOperationException {
+        if (filename == null || filename.trim().isEmpty()) {
+            Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
+            throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
+        }
+
+        File file = new File(filename);
+        try {
+            createParentDirectories(file);
+            // Moved into place like the CSV exports, in case the history is mapped from this path
+            Path temporary = file.toPath().resolveSibling(file.getName() + ".tmp");
+            int count;
+            try {
+                count = BinaryHistoryFormat.write(temporary, rideHistory);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
             }
+            Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            publish(new RideEvent.HistoryExported(rideName, filename, count));
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Binary export failed for file: " + filename, e);
+            throw new exceptions.FileOperationException(
+                    "Error exporting ride history to '" + filename + "'",
+                    wrappedCause
+            );
+        }
+    }
 
+    // Import ride history from the compact binary format, appending to the current history
+    @Override
+    public HistoryImportResult importRideHistoryBinary(String filename) throws exceptions.FileOperationException {
+        if (filename == null || filename.trim().isEmpty()) {
+            Throwable cause = new IllegalArgumentException("Invalid filename: " + filename);
+            throw new exceptions.FileOperationException("Filename cannot be null or empty", cause);
+        }
+
+        File file = getFile(filename);
+        HistoryImportResult result = new HistoryImportResult(filename);
+        int sizeBefore = rideHistory.size();
+        try {
+            result.addImported(BinaryHistoryFormat.read(file.toPath(), rideHistory::add));
+            publish(new RideEvent.HistoryImported(rideName, result));
+            return result;
         } catch (IOException e) {
-            // Use constructor with Throwable parameter for FileOperationException
-            Throwable wrappedCause = new IOException("Import failed for file: " + filename, e);
+            Throwable wrappedCause = new IOException("Binary import failed for file: " + filename, e);
             throw new exceptions.FileOperationException(
                     "Error importing ride history from '" + filename + "'",
                     wrappedCause
             );
+        } finally {
+            if (rideHistory.size() != sizeBefore) {
+                checkpointAfterBulkChange();
+            }
+        }
+    }
+
+    /**
+     * Save the whole ride to one binary file: name, operator, maxRider, numOfCycles, queue and history
+     * With QueuePolicy.CONCURRENT call this on the cycle thread; gates may keep adding visitors,
+     * but visitors queued while the file is written may be left out.
+     */
+    @Override
+    public void snapshot(Path file) throws exceptions.FileOperationException {
+        if (file == null) {
+            Throwable cause = new IllegalArgumentException("Invalid snapshot file: null");
+            throw new exceptions.FileOperationException("Snapshot file cannot be null", cause);
+        }
+
+        long start = System.nanoTime();
+        try {
+            createParentDirectories(file.toAbsolutePath().toFile());
+            RideSnapshot.write(file, rideName, operator, maxRider, numOfCycles, waitingQueue, rideHistory);
+            publish(new RideEvent.SnapshotTaken(rideName, file.toString(), false, waitingQueue.size(),
+                    rideHistory.size(), System.nanoTime() - start));
+        } catch (IOException | UncheckedIOException e) {
+            Throwable wrappedCause = new IOException("Snapshot failed for file: " + file, e);
+            throw new exceptions.FileOperationException(
+                    "Error saving ride '" + rideName + "' to '" + file + "'",
+                    wrappedCause
+            );
+        }
+    }
+
+    /**
+     * Replace this ride's state with a snapshot written by snapshot(Path)
+     * The queue policy and history store stay this ride's own. The file is decoded in full
+     * before anything changes, so a missing or corrupt snapshot leaves the ride as it was.
+     * Call on the cycle thread, before gate threads start adding visitors.
+     */
+    @Override
+    public void restore(Path file) throws exceptions.FileOperationException {
+        if (file == null) {
+            Throwable cause = new IllegalArgumentException("Invalid snapshot file: null");
+            throw new exceptions.FileOperationException("Snapshot file cannot be null", cause);
+        }
+
+        long start = System.nanoTime();
+        RideSnapshot snapshot;
+        try {
+            snapshot = RideSnapshot.read(getFile(file.toString()).toPath());
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Restore failed for file: " + file, e);
+            throw new exceptions.FileOperationException(
+                    "Error restoring ride '" + rideName + "' from '" + file + "'",
+                    wrappedCause
+            );
+        }
+
+        rideName = snapshot.getRideName();
+        operator = snapshot.getOperator();
+        maxRider = snapshot.getMaxRider();
+        numOfCycles = snapshot.getNumOfCycles();
+        waitingQueue.clear();
+        for (Visitor visitor : snapshot.getQueue()) {
+            waitingQueue.offer(visitor);
+        }
+        rideHistory.clear();
+        rideHistory.addAll(snapshot.getHistory());
+        historyGeneration++;
+        backlogAfterLastCycle = false;
+        metrics.recordEnqueued(waitingQueue.size());
+        checkpointAfterBulkChange();
+        publish(new RideEvent.SnapshotTaken(rideName, file.toString(), true, waitingQueue.size(),
+                rideHistory.size(), System.nanoTime() - start));
+    }
+
+    // Create parent directories if they don't exist
+    private void createParentDirectories(File file) throws IOException {
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            boolean dirsCreated = parentDir.mkdirs();
+            if (dirsCreated) {
+                publish(new RideEvent.DirectoryCreated(rideName, parentDir.getAbsolutePath()));
+            } else if (!parentDir.exists()) {
+                throw new IOException("Failed to create directory: " + parentDir.getAbsolutePath());
+            }
         }
     }
 
@@ -384,17 +924,59 @@ public class Ride implements RideInterface {
     @Override
     public void sortRideHistory(Comparator<Visitor> comparator) {
         if (comparator == null) {
-            System.out.println("❌ Error: Comparator cannot be null.");
+            publish(new RideEvent.Notice(rideName, "❌ Error: Comparator cannot be null."));
             return;
         }
         if (rideHistory.isEmpty()) {
-            System.out.println("ℹ️ No visitors in ride history to sort.");
+            publish(new RideEvent.Notice(rideName, "ℹ️ No visitors in ride history to sort."));
             return;
         }
 
-        System.out.println("🔃 Sorting ride history of " + rideName + "...");
-        rideHistory.sort(comparator);
-        System.out.println("✅ Ride history sorted successfully using custom comparator");
+        try {
+            rideHistory.sort(comparator);
+        } catch (UnsupportedOperationException e) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: This ride's history cannot be sorted ("
+                    + e.getMessage() + ")."));
+            return;
+        }
+        historyGeneration++;
+        checkpointAfterBulkChange();  // A comparator cannot be journaled, so save the sorted state
+        publish(new RideEvent.HistorySorted(rideName));
+    }
+
+    /**
+     * The first k visitors of the history in comparator order, without sorting the history
+     * Ties keep history order, so the result is the first k entries sortRideHistory would give.
+     */
+    @Override
+    public List<Visitor> topK(Comparator<Visitor> comparator, int k) {
+        if (comparator == null) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Comparator cannot be null."));
+            return Collections.emptyList();
+        }
+        if (k < 0) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: k cannot be negative."));
+            return Collections.emptyList();
+        }
+        return HistoryQueries.topK(rideHistory, comparator, k);
+    }
+
+    /**
+     * One page of the history in comparator order, without sorting the history
+     * Costs O(n log(offset + limit)); for the next page pass the returned page's getNextOffset().
+     */
+    @Override
+    public HistoryPage page(Comparator<Visitor> comparator, int offset, int limit) {
+        if (comparator == null) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Comparator cannot be null."));
+            return new HistoryPage(Collections.emptyList(), 0, 0, rideHistory.size());
+        }
+        if (offset < 0 || limit < 0) {
+            publish(new RideEvent.Notice(rideName, "❌ Error: Page offset and limit cannot be negative."));
+            return new HistoryPage(Collections.emptyList(), 0, 0, rideHistory.size());
+        }
+        return new HistoryPage(HistoryQueries.slice(rideHistory, comparator, offset, limit),
+                offset, limit, rideHistory.size());
     }
 
     // Utility methods for testing
@@ -408,21 +990,216 @@ public class Ride implements RideInterface {
         return rideHistory.size();
     }
 
+    // Read-only access for park-wide aggregations (see RideAnalytics)
+    HistoryStore getHistoryStore() {
+        return rideHistory;
+    }
+
     // Additional utility methods - used in AssignmentTwo
     public void clearQueue() {
-        waitingQueue.clear();
-        System.out.println("🧹 Queue cleared for " + rideName);
+        int removed = waitingQueue.size();
+        RideJournal journal = this.journal;
+        if (journal == null) {
+            waitingQueue.clear();
+        } else {
+            long sequence;
+            journal.lock();  // Keeps gates from queueing between the clear and its record
+            try {
+                waitingQueue.clear();
+                sequence = journal.appendQueueCleared();
+            } finally {
+                journal.unlock();
+            }
+            commit(journal, sequence);
+        }
+        metrics.recordRemoved(removed);
+        publish(new RideEvent.QueueCleared(rideName));
     }
 
     public void clearHistory() {
         rideHistory.clear();
+        historyGeneration++;
         numOfCycles = 0;
-        System.out.println("🧹 History cleared for " + rideName);
+        RideJournal journal = this.journal;
+        if (journal != null) {
+            commit(journal, journal.appendHistoryCleared());
+        }
+        publish(new RideEvent.HistoryCleared(rideName));
     }
 
     public boolean isOperatorAssigned() {
         boolean assigned = operator != null;
-        System.out.println("🔍 Operator assigned for " + rideName + ": " + (assigned ? "Yes" : "No"));
+        publish(new RideEvent.OperatorChecked(rideName, assigned));
         return assigned;
     }
+
+    /**
+     * Journal this ride's queue and history in a directory (see RideJournal)
+     * If the directory already holds a journal, the queue, history and cycle count are replaced
+     * by the state it recovers; otherwise the current state becomes its first checkpoint.
+     * From then on every queue or history change is on disk before the method making it returns.
+     * Open it before gate threads start, and checkpoint or close it on the cycle thread.
+     */
+    public void openJournal(String directory) throws exceptions.FileOperationException {
+        openJournal(directory, RideJournal.DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    // Same, taking a checkpoint whenever the log grows past checkpointBytes
+    public void openJournal(String directory, long checkpointBytes) throws exceptions.FileOperationException {
+        if (directory == null || directory.trim().isEmpty()) {
+            Throwable cause = new IllegalArgumentException("Invalid directory: " + directory);
+            throw new exceptions.FileOperationException("Journal directory cannot be null or empty", cause);
+        }
+        if (journal != null) {
+            Throwable cause = new IllegalStateException("Journal already open in " + journal.getDirectory());
+            throw new exceptions.FileOperationException("Ride '" + rideName + "' already has a journal", cause);
+        }
+
+        try {
+            RideJournal opened = RideJournal.open(Paths.get(directory), checkpointBytes,
+                    waitingQueue, rideHistory, numOfCycles);
+            if (opened.isRecovered()) {
+                numOfCycles = opened.getRecoveredCycles();
+                historyGeneration++;
+                metrics.recordEnqueued(waitingQueue.size());
+            }
+            journal = opened;
+            publish(new RideEvent.JournalOpened(rideName, directory, opened.getRecoveredRecords(),
+                    waitingQueue.size(), rideHistory.size(), numOfCycles));
+        } catch (IOException | UncheckedIOException e) {
+            Throwable wrappedCause = new IOException("Journal could not be opened: " + directory, e);
+            throw new exceptions.FileOperationException(
+                    "Error opening the journal of ride '" + rideName + "' in '" + directory + "'",
+                    wrappedCause
+            );
+        }
+    }
+
+    // Write a checkpoint now and delete the log it replaces
+    public void checkpointJournal() throws exceptions.FileOperationException {
+        RideJournal current = journal;
+        if (current == null) {
+            Throwable cause = new IllegalStateException("No journal open");
+            throw new exceptions.FileOperationException("Ride '" + rideName + "' has no journal", cause);
+        }
+        try {
+            checkpoint(current);
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Checkpoint failed in: " + current.getDirectory(), e);
+            throw new exceptions.FileOperationException(
+                    "Error writing a journal checkpoint for ride '" + rideName + "'",
+                    wrappedCause
+            );
+        }
+    }
+
+    // Sync and close the journal; later changes are no longer journaled
+    public void closeJournal() throws exceptions.FileOperationException {
+        RideJournal current = journal;
+        if (current == null) {
+            return;
+        }
+        current.lock();
+        try {
+            journal = null;  // Gates that already hold the old reference see the change under the lock
+        } finally {
+            current.unlock();
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            Throwable wrappedCause = new IOException("Journal close failed in: " + current.getDirectory(), e);
+            throw new exceptions.FileOperationException(
+                    "Error closing the journal of ride '" + rideName + "'",
+                    wrappedCause
+            );
+        }
+    }
+
+    // The open journal, or null
+    public RideJournal getJournal() {
+        return journal;
+    }
+
+    // Waits until a journal record is on disk; false if the journal failed and was closed
+    private boolean commit(RideJournal journal, long sequence) {
+        try {
+            journal.sync(sequence);
+            return true;
+        } catch (IOException e) {
+            journalFailed(journal, e);
+            return false;
+        }
+    }
+
+    private void checkpointIfDue(RideJournal journal) {
+        if (journal.shouldCheckpoint()) {
+            try {
+                checkpoint(journal);
+            } catch (IOException e) {
+                journalFailed(journal, e);
+            }
+        }
+    }
+
+    // After a change that is not journaled record by record (sort, import)
+    private void checkpointAfterBulkChange() {
+        RideJournal current = journal;
+        if (current != null) {
+            try {
+                checkpoint(current);
+            } catch (IOException e) {
+                journalFailed(current, e);
+            }
+        }
+    }
+
+    private void checkpoint(RideJournal journal) throws IOException {
+        try {
+            journal.checkpoint(waitingQueue, rideHistory, numOfCycles);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();  // From a history store that reads from disk
+        }
+        publish(new RideEvent.JournalCheckpointed(rideName, journal.getGeneration()));
+    }
+
+    // The ride keeps running in memory, but stops journaling so it never logs past a gap
+    private void journalFailed(RideJournal failed, IOException e) {
+        failed.lock();
+        try {
+            if (journal != failed) {
+                return;  // Another thread already reported it
+            }
+            journal = null;
+        } finally {
+            failed.unlock();
+        }
+        try {
+            failed.close();
+        } catch (IOException ignored) {
+            // Already failing; the first error is the one reported
+        }
+        publish(new RideEvent.Notice(rideName, "❌ Error: Journal write failed in " + failed.getDirectory()
+                + " (" + e.getMessage() + "). Journaling stopped."));
+    }
+
+    // Metrics of this ride (see RideMetrics.registerMBean to expose them over JMX)
+    @Override
+    public RideMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Event listener for this ride (falls back to the park-wide RideEventBus listener)
+    public RideEventListener getEventListener() {
+        return (eventListener != null) ? eventListener : RideEventBus.getDefaultListener();
+    }
+
+    public void setEventListener(RideEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    private void publish(RideEvent event) {
+        RideEventListener listener = eventListener;
+        (listener != null ? listener : RideEventBus.getDefaultListener()).onEvent(event);
+    }
 }
\ No newline at end of file
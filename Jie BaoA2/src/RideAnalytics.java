@@ -0,0 +1,481 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Park-wide analytics over the histories of many rides, without exporting them
+ * Each history is cut into chunks of CHUNK_SIZE entries that are aggregated on all cores
+ * (a parallel stream over the chunks). Every worker thread adds into its own partial
+ * aggregate, so the inner loop shares nothing and takes no locks, and the partials (one per
+ * thread) are merged at the end. A store that cannot be read by several threads at once
+ * (see HistoryStore.supportsParallelReads) is aggregated as a single chunk.
+ *
+ * Histories are read as they are, so run analytics while the rides are not boarding,
+ * e.g. after Park.shutdown, as for any other read of a history.
+ */
+public class RideAnalytics {
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int SHARD_BITS = 6;  // Visitor counts are split into 64 shards by id hash
+    private static final int SHARDS = 1 << SHARD_BITS;
+
+    /** Adds one history entry to a partial aggregate */
+    @FunctionalInterface
+    public interface Accumulator<A> {
+        // ride is the index of the entry's ride in getRideNames()
+        void accept(A partial, int ride, Visitor visitor);
+    }
+
+    private final List<Ride> rides = new ArrayList<>();
+    private final List<String> rideNames = new ArrayList<>();
+
+    // Analytics over these rides (null entries are ignored)
+    public RideAnalytics(Collection<Ride> rides) {
+        if (rides != null) {
+            for (Ride ride : rides) {
+                if (ride != null) {
+                    this.rides.add(ride);
+                    this.rideNames.add(ride.getRideName());
+                }
+            }
+        }
+    }
+
+    public List<String> getRideNames() {
+        return Collections.unmodifiableList(rideNames);
+    }
+
+    // History entries over all rides
+    public long getTotalEntries() {
+        long total = 0;
+        for (Ride ride : rides) {
+            total += ride.getHistorySize();
+        }
+        return total;
+    }
+
+    /**
+     * Grouped aggregation over every history entry of every ride
+     * @param newPartial  creates an empty partial aggregate (called once per worker thread)
+     * @param accumulator adds one entry to a partial
+     * @param merge       combines two partials into one (may return either of them)
+     * @return the merged aggregate (an empty partial when there are no entries)
+     */
+    public <A> A aggregate(Supplier<A> newPartial, Accumulator<A> accumulator, BinaryOperator<A> merge) {
+        A result = null;
+        for (A partial : accumulate(newPartial, accumulator)) {
+            result = (result == null) ? partial : merge.apply(result, partial);
+        }
+        return (result != null) ? result : newPartial.get();
+    }
+
+    // Runs the accumulator over all chunks and returns the partial of every thread that took part
+    private <A> Collection<A> accumulate(Supplier<A> newPartial, Accumulator<A> accumulator) {
+        List<int[]> chunks = new ArrayList<>();  // {ride, from, to}; to = -1 iterates the whole store
+        for (int r = 0; r < rides.size(); r++) {
+            HistoryStore history = rides.get(r).getHistoryStore();
+            int size = history.size();
+            if (size == 0) {
+                continue;
+            }
+            if (!history.supportsParallelReads()) {
+                chunks.add(new int[]{r, 0, -1});
+                continue;
+            }
+            for (int from = 0; from < size; from += CHUNK_SIZE) {
+                chunks.add(new int[]{r, from, (int) Math.min(size, (long) from + CHUNK_SIZE)});
+            }
+        }
+
+        Map<Thread, A> partials = new ConcurrentHashMap<>();
+        IntStream.range(0, chunks.size()).parallel().forEach(c -> {
+            int[] chunk = chunks.get(c);
+            int ride = chunk[0];
+            HistoryStore history = rides.get(ride).getHistoryStore();
+            A partial = partials.computeIfAbsent(Thread.currentThread(), thread -> newPartial.get());
+            if (chunk[2] < 0) {
+                for (Visitor visitor : history) {
+                    accumulator.accept(partial, ride, visitor);
+                }
+            } else {
+                for (int i = chunk[1]; i < chunk[2]; i++) {
+                    accumulator.accept(partial, ride, history.get(i));
+                }
+            }
+        });
+        return partials.values();
+    }
+
+    // Rides taken by each visitor id, over all rides
+    public VisitorCounts ridesPerVisitor() {
+        Collection<VisitorCounts> partials = accumulate(VisitorCounts::new,
+                (counts, ride, visitor) -> counts.add(visitor.getId(), 1));
+        return VisitorCounts.merge(partials);
+    }
+
+    /**
+     * History entries and tickets per membership level, over all rides
+     * Levels are grouped exactly as stored (null is a group of its own).
+     * @return most tickets first
+     */
+    public Map<String, MembershipTotals> ticketsByMembership() {
+        Map<String, MembershipTotals> totals = aggregate(HashMap::new, (partial, ride, visitor) -> {
+            String level = visitor.getMembershipLevel();
+            MembershipTotals levelTotals = partial.get(level);
+            if (levelTotals == null) {
+                levelTotals = new MembershipTotals(level);
+                partial.put(level, levelTotals);
+            }
+            levelTotals.add(1, visitor.getTickets());
+        }, (left, right) -> {
+            right.forEach((level, levelTotals) ->
+                    left.computeIfAbsent(level, MembershipTotals::new).add(levelTotals.entries, levelTotals.tickets));
+            return left;
+        });
+        List<MembershipTotals> sorted = new ArrayList<>(totals.values());
+        sorted.sort(Comparator.comparingLong(MembershipTotals::getTickets).reversed());
+        Map<String, MembershipTotals> result = new LinkedHashMap<>();
+        for (MembershipTotals levelTotals : sorted) {
+            result.put(levelTotals.getMembershipLevel(), levelTotals);
+        }
+        return result;
+    }
+
+    // Age distribution of each ride's history, in ride order (rides sharing a name are combined)
+    public Map<String, AgeDistribution> ageDistributionByRide() {
+        AgeDistribution[] perRide = aggregate(this::newAgeDistributions,
+                (partial, ride, visitor) -> partial[ride].record(visitor.getAge()),
+                (left, right) -> {
+                    for (int r = 0; r < left.length; r++) {
+                        left[r].merge(right[r]);
+                    }
+                    return left;
+                });
+        Map<String, AgeDistribution> result = new LinkedHashMap<>();
+        for (AgeDistribution distribution : perRide) {
+            AgeDistribution existing = result.putIfAbsent(distribution.getRideName(), distribution);
+            if (existing != null) {
+                existing.merge(distribution);
+            }
+        }
+        return result;
+    }
+
+    private AgeDistribution[] newAgeDistributions() {
+        AgeDistribution[] distributions = new AgeDistribution[rides.size()];
+        for (int r = 0; r < distributions.length; r++) {
+            distributions[r] = new AgeDistribution(rideNames.get(r));
+        }
+        return distributions;
+    }
+
+    /**
+     * Riders and tickets of every ride
+     * @return busiest first: most riders (history entries), then most tickets
+     */
+    public List<RideTotals> rideTotals() {
+        long[] tickets = aggregate(() -> new long[rides.size()],
+                (partial, ride, visitor) -> partial[ride] += visitor.getTickets(),
+                (left, right) -> {
+                    for (int r = 0; r < left.length; r++) {
+                        left[r] += right[r];
+                    }
+                    return left;
+                });
+        List<RideTotals> totals = new ArrayList<>(rides.size());
+        for (int r = 0; r < rides.size(); r++) {
+            totals.add(new RideTotals(rideNames.get(r), rides.get(r).getHistorySize(), tickets[r]));
+        }
+        totals.sort(Comparator.comparingLong(RideTotals::getRiders).thenComparingLong(RideTotals::getTickets).reversed());
+        return totals;
+    }
+
+    // The ride with the most riders (ties go to the most tickets); null without rides
+    public RideTotals busiestRide() {
+        List<RideTotals> totals = rideTotals();
+        return totals.isEmpty() ? null : totals.get(0);
+    }
+
+    // Shard of an id; uses the top bits of a multiplicative hash, StringDictionary uses the low bits
+    private static int shardOf(String id) {
+        return (id.hashCode() * 0x9E3779B9) >>> (32 - SHARD_BITS);
+    }
+
+    /**
+     * Rides taken per visitor id
+     * Counts are held in primitive arrays next to a StringDictionary per shard, so each
+     * visitor costs about 28 bytes besides its id, and shards are merged in parallel.
+     */
+    public static class VisitorCounts {
+        private final StringDictionary[] ids = new StringDictionary[SHARDS];
+        private final long[][] counts = new long[SHARDS][];
+
+        VisitorCounts() {
+            for (int s = 0; s < SHARDS; s++) {
+                ids[s] = new StringDictionary();
+                counts[s] = new long[16];
+            }
+        }
+
+        // Entries with a null id are not counted
+        void add(String id, long rides) {
+            if (id == null) {
+                return;
+            }
+            int s = shardOf(id);
+            int code = ids[s].encode(id);
+            if (code == counts[s].length) {
+                counts[s] = Arrays.copyOf(counts[s], code * 2);
+            }
+            counts[s][code] += rides;
+        }
+
+        // Merges each shard of the other partials into the first one, shards in parallel
+        static VisitorCounts merge(Collection<VisitorCounts> partials) {
+            List<VisitorCounts> all = new ArrayList<>(partials);
+            if (all.isEmpty()) {
+                return new VisitorCounts();
+            }
+            VisitorCounts result = all.get(0);
+            IntStream.range(0, SHARDS).parallel().forEach(s -> {
+                for (int p = 1; p < all.size(); p++) {
+                    StringDictionary otherIds = all.get(p).ids[s];
+                    long[] otherCounts = all.get(p).counts[s];
+                    for (int code = 0; code < otherIds.size(); code++) {
+                        result.add(otherIds.decode(code), otherCounts[code]);  // Same id, same shard
+                    }
+                }
+            });
+            return result;
+        }
+
+        // Rides taken by a visitor (0 if the id never rode)
+        public long getRides(String visitorId) {
+            if (visitorId == null) {
+                return 0;
+            }
+            int s = shardOf(visitorId);
+            int code = ids[s].find(visitorId);
+            return (code >= 0) ? counts[s][code] : 0;
+        }
+
+        // Distinct visitor ids
+        public int getVisitorCount() {
+            int total = 0;
+            for (StringDictionary shard : ids) {
+                total += shard.size();
+            }
+            return total;
+        }
+
+        public long getTotalRides() {
+            long total = 0;
+            for (int s = 0; s < SHARDS; s++) {
+                for (int code = 0; code < ids[s].size(); code++) {
+                    total += counts[s][code];
+                }
+            }
+            return total;
+        }
+
+        // Every id with its ride count, in no particular order
+        public void forEach(ObjLongConsumer<String> action) {
+            for (int s = 0; s < SHARDS; s++) {
+                for (int code = 0; code < ids[s].size(); code++) {
+                    action.accept(ids[s].decode(code), counts[s][code]);
+                }
+            }
+        }
+
+        /**
+         * The k visitors with the most rides
+         * @return id and ride count, most rides first (ties by id)
+         */
+        public List<Map.Entry<String, Long>> top(int k) {
+            if (k <= 0) {
+                return Collections.emptyList();
+            }
+            Comparator<Map.Entry<String, Long>> order = Map.Entry.<String, Long>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey());
+            PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(order.reversed());  // Worst on top
+            forEach((id, rides) -> {
+                if (heap.size() < k) {
+                    heap.add(Map.entry(id, rides));
+                } else if (rides >= heap.peek().getValue()) {
+                    Map.Entry<String, Long> entry = Map.entry(id, rides);
+                    if (order.compare(entry, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.add(entry);
+                    }
+                }
+            });
+            List<Map.Entry<String, Long>> result = new ArrayList<>(heap);
+            result.sort(order);
+            return result;
+        }
+    }
+
+    /** History entries and tickets of one membership level */
+    public static class MembershipTotals {
+        private final String membershipLevel;
+        private long entries;
+        private long tickets;
+
+        MembershipTotals(String membershipLevel) {
+            this.membershipLevel = membershipLevel;
+        }
+
+        void add(long entries, long tickets) {
+            this.entries += entries;
+            this.tickets += tickets;
+        }
+
+        public String getMembershipLevel() {
+            return membershipLevel;
+        }
+
+        // Rides taken by visitors of this level
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d rides, %d tickets", membershipLevel, entries, tickets);
+        }
+    }
+
+    /**
+     * Ages of the visitors in one ride's history
+     * Ages 0 to MAX_AGE are counted exactly; other values are only counted as out of range.
+     */
+    public static class AgeDistribution {
+        public static final int MAX_AGE = 120;  // Highest age Person.setAge accepts
+
+        private final String rideName;
+        private final long[] counts = new long[MAX_AGE + 1];
+        private long outOfRange;
+        private long total;
+        private long sum;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        AgeDistribution(String rideName) {
+            this.rideName = rideName;
+        }
+
+        void record(int age) {
+            if (age >= 0 && age <= MAX_AGE) {
+                counts[age]++;
+            } else {
+                outOfRange++;
+            }
+            total++;
+            sum += age;
+            min = Math.min(min, age);
+            max = Math.max(max, age);
+        }
+
+        void merge(AgeDistribution other) {
+            for (int age = 0; age <= MAX_AGE; age++) {
+                counts[age] += other.counts[age];
+            }
+            outOfRange += other.outOfRange;
+            total += other.total;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        public String getRideName() {
+            return rideName;
+        }
+
+        // Visitors of exactly this age
+        public long getCount(int age) {
+            return (age >= 0 && age <= MAX_AGE) ? counts[age] : 0;
+        }
+
+        // Visitors aged fromAge to toAge inclusive (within 0 to MAX_AGE)
+        public long getCountBetween(int fromAge, int toAge) {
+            long count = 0;
+            for (int age = Math.max(0, fromAge); age <= Math.min(MAX_AGE, toAge); age++) {
+                count += counts[age];
+            }
+            return count;
+        }
+
+        public long getOutOfRange() {
+            return outOfRange;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        // Average age, or 0 without visitors
+        public double getMean() {
+            return (total == 0) ? 0.0 : (double) sum / total;
+        }
+
+        // Youngest age, or 0 without visitors
+        public int getMin() {
+            return (total == 0) ? 0 : min;
+        }
+
+        public int getMax() {
+            return (total == 0) ? 0 : max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d visitors, ages %d-%d, mean %.1f", rideName, total, getMin(), getMax(), getMean());
+        }
+    }
+
+    /** Riders and tickets of one ride */
+    public static class RideTotals {
+        private final String rideName;
+        private final long riders;
+        private final long tickets;
+
+        RideTotals(String rideName, long riders, long tickets) {
+            this.rideName = rideName;
+            this.riders = riders;
+            this.tickets = tickets;
+        }
+
+        public String getRideName() {
+            return rideName;
+        }
+
+        // History entries
+        public long getRiders() {
+            return riders;
+        }
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d riders, %d tickets", rideName, riders, tickets);
+        }
+    }
+}
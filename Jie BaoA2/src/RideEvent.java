@@ -0,0 +1,533 @@
+import java.util.List;
+
+/**
+ * Base class for events raised by rides and park objects
+ * Events only carry data; text is produced by format(), which listeners call
+ * when (and on whichever thread) they decide to write output.
+ * Events hold references to the visitors involved, so a listener that formats
+ * later sees the visitor's state at formatting time.
+ */
+public abstract class RideEvent {
+    private final String rideName;  // null for events not raised by a ride
+
+    protected RideEvent(String rideName) {
+        this.rideName = rideName;
+    }
+
+    public String getRideName() {
+        return rideName;
+    }
+
+    /**
+     * Format this event as console text (may span several lines)
+     * @return the text the console sink prints for this event
+     */
+    public abstract String format();
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{ride='" + rideName + "'}";
+    }
+
+    /** Free-text warning or error for rare paths such as invalid arguments */
+    public static final class Notice extends RideEvent {
+        private final String message;
+
+        public Notice(String rideName, String message) {
+            super(rideName);
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String format() {
+            return message;
+        }
+    }
+
+    public static final class VisitorQueued extends RideEvent {
+        private final Visitor visitor;
+
+        public VisitorQueued(String rideName, Visitor visitor) {
+            super(rideName);
+            this.visitor = visitor;
+        }
+
+        public Visitor getVisitor() {
+            return visitor;
+        }
+
+        @Override
+        public String format() {
+            return "✅ Visitor '" + visitor.getName() + "' added to queue for " + getRideName();
+        }
+    }
+
+    /** Head of the queue removed; visitor is null when the queue was empty */
+    public static final class VisitorDequeued extends RideEvent {
+        private final Visitor visitor;
+
+        public VisitorDequeued(String rideName, Visitor visitor) {
+            super(rideName);
+            this.visitor = visitor;
+        }
+
+        public Visitor getVisitor() {
+            return visitor;
+        }
+
+        @Override
+        public String format() {
+            if (visitor == null) {
+                return "ℹ️ Queue is empty. No visitor to remove.";
+            }
+            return "✅ Visitor '" + visitor.getName() + "' removed from queue";
+        }
+    }
+
+    /** A visitor left the queue before boarding (see RideInterface.removeVisitorFromQueue(Visitor)) */
+    public static final class VisitorLeftQueue extends RideEvent {
+        private final Visitor visitor;
+
+        public VisitorLeftQueue(String rideName, Visitor visitor) {
+            super(rideName);
+            this.visitor = visitor;
+        }
+
+        public Visitor getVisitor() {
+            return visitor;
+        }
+
+        @Override
+        public String format() {
+            return "🚶 Visitor '" + visitor.getName() + "' left the queue for " + getRideName();
+        }
+    }
+
+    public static final class HistoryAdded extends RideEvent {
+        private final Visitor visitor;
+
+        public HistoryAdded(String rideName, Visitor visitor) {
+            super(rideName);
+            this.visitor = visitor;
+        }
+
+        public Visitor getVisitor() {
+            return visitor;
+        }
+
+        @Override
+        public String format() {
+            return "✅ Visitor '" + visitor.getName() + "' added to ride history of " + getRideName();
+        }
+    }
+
+    public static final class HistoryChecked extends RideEvent {
+        private final Visitor visitor;
+        private final boolean found;
+
+        public HistoryChecked(String rideName, Visitor visitor, boolean found) {
+            super(rideName);
+            this.visitor = visitor;
+            this.found = found;
+        }
+
+        public Visitor getVisitor() {
+            return visitor;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        @Override
+        public String format() {
+            return "🔍 Visitor '" + visitor.getName() + "' in ride history of " + getRideName() + ": " + found;
+        }
+    }
+
+    public static final class VisitorsCounted extends RideEvent {
+        private final int count;
+
+        public VisitorsCounted(String rideName, int count) {
+            super(rideName);
+            this.count = count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String format() {
+            return "📊 Number of visitors in ride history of " + getRideName() + ": " + count;
+        }
+    }
+
+    /** One cycle run by runOneCycle */
+    public static final class CycleCompleted extends RideEvent {
+        private final String operatorName;
+        private final int maxRider;
+        private final List<Visitor> riders;
+        private final int remainingInQueue;
+        private final int totalCycles;
+        private final int historySize;
+
+        public CycleCompleted(String rideName, String operatorName, int maxRider, List<Visitor> riders,
+                              int remainingInQueue, int totalCycles, int historySize) {
+            super(rideName);
+            this.operatorName = operatorName;
+            this.maxRider = maxRider;
+            this.riders = riders;
+            this.remainingInQueue = remainingInQueue;
+            this.totalCycles = totalCycles;
+            this.historySize = historySize;
+        }
+
+        public List<Visitor> getRiders() {
+            return riders;
+        }
+
+        public int getRemainingInQueue() {
+            return remainingInQueue;
+        }
+
+        public int getTotalCycles() {
+            return totalCycles;
+        }
+
+        public int getHistorySize() {
+            return historySize;
+        }
+
+        @Override
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append("🎢 Running ride cycle for ").append(getRideName())
+                    .append(" (max riders: ").append(maxRider).append(")...\n");
+            text.append("   Operator: ").append(operatorName).append('\n');
+            for (Visitor rider : riders) {
+                text.append("   ✅ ").append(rider.getName()).append(" has taken the ride\n");
+            }
+            if (!riders.isEmpty()) {
+                text.append("   Current riders list processed successfully\n");
+            }
+            text.append("🎉 Ride cycle completed successfully!\n");
+            text.append("   Riders processed: ").append(riders.size()).append('\n');
+            text.append("   Remaining in queue: ").append(remainingInQueue).append('\n');
+            text.append("   Total cycles run: ").append(totalCycles).append('\n');
+            text.append("   Total visitors in history: ").append(historySize);
+            return text.toString();
+        }
+    }
+
+    /** A batch of cycles run by runCycles / runUntilEmpty */
+    public static final class CyclesCompleted extends RideEvent {
+        private final CycleSummary summary;
+
+        public CyclesCompleted(String rideName, CycleSummary summary) {
+            super(rideName);
+            this.summary = summary;
+        }
+
+        public CycleSummary getSummary() {
+            return summary;
+        }
+
+        @Override
+        public String format() {
+            return "🎢 " + getRideName() + ": " + summary;
+        }
+    }
+
+    public static final class MaxRiderChanged extends RideEvent {
+        private final int maxRider;
+
+        public MaxRiderChanged(String rideName, int maxRider) {
+            super(rideName);
+            this.maxRider = maxRider;
+        }
+
+        public int getMaxRider() {
+            return maxRider;
+        }
+
+        @Override
+        public String format() {
+            return "✅ Max riders for " + getRideName() + " set to: " + maxRider;
+        }
+    }
+
+    public static final class OperatorChecked extends RideEvent {
+        private final boolean assigned;
+
+        public OperatorChecked(String rideName, boolean assigned) {
+            super(rideName);
+            this.assigned = assigned;
+        }
+
+        public boolean isAssigned() {
+            return assigned;
+        }
+
+        @Override
+        public String format() {
+            return "🔍 Operator assigned for " + getRideName() + ": " + (assigned ? "Yes" : "No");
+        }
+    }
+
+    public static final class HistorySorted extends RideEvent {
+        public HistorySorted(String rideName) {
+            super(rideName);
+        }
+
+        @Override
+        public String format() {
+            return "🔃 Sorting ride history of " + getRideName() + "...\n" +
+                    "✅ Ride history sorted successfully using custom comparator";
+        }
+    }
+
+    public static final class QueueCleared extends RideEvent {
+        public QueueCleared(String rideName) {
+            super(rideName);
+        }
+
+        @Override
+        public String format() {
+            return "🧹 Queue cleared for " + getRideName();
+        }
+    }
+
+    public static final class HistoryCleared extends RideEvent {
+        public HistoryCleared(String rideName) {
+            super(rideName);
+        }
+
+        @Override
+        public String format() {
+            return "🧹 History cleared for " + getRideName();
+        }
+    }
+
+    public static final class DirectoryCreated extends RideEvent {
+        private final String path;
+
+        public DirectoryCreated(String rideName, String path) {
+            super(rideName);
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String format() {
+            return "📁 Created directory: " + path;
+        }
+    }
+
+    public static final class HistoryExported extends RideEvent {
+        private final String filename;
+        private final int count;
+
+        public HistoryExported(String rideName, String filename, int count) {
+            super(rideName);
+            this.filename = filename;
+            this.count = count;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String format() {
+            return "💾 Successfully exported " + count + " visitors to file: " + filename;
+        }
+    }
+
+    public static final class HistoryImported extends RideEvent {
+        private final HistoryImportResult result;
+
+        public HistoryImported(String rideName, HistoryImportResult result) {
+            super(rideName);
+            this.result = result;
+        }
+
+        public HistoryImportResult getResult() {
+            return result;
+        }
+
+        @Override
+        public String format() {
+            String text = "📥 Successfully imported " + result.getImportedCount() +
+                    " visitors from file: " + result.getFilename();
+            if (result.getErrorCount() > 0) {
+                text += "\n⚠️  " + result.getErrorCount() + " lines had errors and were skipped";
+            }
+            return text;
+        }
+    }
+
+    /** The whole ride state was saved to or restored from a snapshot file (see RideSnapshot) */
+    public static final class SnapshotTaken extends RideEvent {
+        private final String filename;
+        private final boolean restored;
+        private final int queueSize;
+        private final int historySize;
+        private final long nanos;
+
+        public SnapshotTaken(String rideName, String filename, boolean restored, int queueSize, int historySize,
+                             long nanos) {
+            super(rideName);
+            this.filename = filename;
+            this.restored = restored;
+            this.queueSize = queueSize;
+            this.historySize = historySize;
+            this.nanos = nanos;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        // true for a restore, false for a save
+        public boolean isRestored() {
+            return restored;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getHistorySize() {
+            return historySize;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String format() {
+            return String.format("📸 %s %s %s: %d in queue, %d in history (%.1f ms)", getRideName(),
+                    restored ? "restored from" : "saved to", filename, queueSize, historySize, nanos / 1e6);
+        }
+    }
+
+    /** A write-ahead journal was opened, replaying any state it held (see Ride.openJournal) */
+    public static final class JournalOpened extends RideEvent {
+        private final String directory;
+        private final long recoveredRecords;
+        private final int queueSize;
+        private final int historySize;
+        private final int totalCycles;
+
+        public JournalOpened(String rideName, String directory, long recoveredRecords, int queueSize,
+                             int historySize, int totalCycles) {
+            super(rideName);
+            this.directory = directory;
+            this.recoveredRecords = recoveredRecords;
+            this.queueSize = queueSize;
+            this.historySize = historySize;
+            this.totalCycles = totalCycles;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        // Records replayed, 0 for a new journal
+        public long getRecoveredRecords() {
+            return recoveredRecords;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getHistorySize() {
+            return historySize;
+        }
+
+        public int getTotalCycles() {
+            return totalCycles;
+        }
+
+        @Override
+        public String format() {
+            if (recoveredRecords == 0) {
+                return "📒 Journal started for " + getRideName() + " in: " + directory;
+            }
+            return "📒 Recovered " + getRideName() + " from journal " + directory + " (" + recoveredRecords
+                    + " records): " + queueSize + " in queue, " + historySize + " in history, "
+                    + totalCycles + " cycles";
+        }
+    }
+
+    /** The journal was compacted into a new checkpoint and the older log deleted */
+    public static final class JournalCheckpointed extends RideEvent {
+        private final long generation;
+
+        public JournalCheckpointed(String rideName, long generation) {
+            super(rideName);
+            this.generation = generation;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        @Override
+        public String format() {
+            return "📒 Journal checkpoint " + generation + " written for " + getRideName();
+        }
+    }
+
+    /** A Park ride loop changed state (only transitions are published, not every tick) */
+    public static final class RideStateChanged extends RideEvent {
+        private final RideLoopState state;
+
+        public RideStateChanged(String rideName, RideLoopState state) {
+            super(rideName);
+            this.state = state;
+        }
+
+        public RideLoopState getState() {
+            return state;
+        }
+
+        @Override
+        public String format() {
+            return "🚦 " + getRideName() + " is now " + state;
+        }
+    }
+
+    /** Raised by Person.setAge when the age is rejected */
+    public static final class InvalidAge extends RideEvent {
+        private final int age;
+
+        public InvalidAge(int age) {
+            super(null);
+            this.age = age;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        @Override
+        public String format() {
+            return "⚠️  Invalid age: " + age + ". Age must be between 0 and 120.";
+        }
+    }
+}
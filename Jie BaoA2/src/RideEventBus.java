@@ -0,0 +1,24 @@
+/**
+ * Park-wide default event listener
+ * Rides without a listener of their own, and Person, publish here.
+ * The default is RideEventListener.NO_OP, so core operations do no console I/O
+ * unless a sink (e.g. ConsoleRideEventListener) is installed.
+ */
+public final class RideEventBus {
+    private static volatile RideEventListener defaultListener = RideEventListener.NO_OP;
+
+    private RideEventBus() {
+    }
+
+    public static RideEventListener getDefaultListener() {
+        return defaultListener;
+    }
+
+    public static void setDefaultListener(RideEventListener listener) {
+        defaultListener = (listener != null) ? listener : RideEventListener.NO_OP;
+    }
+
+    public static void publish(RideEvent event) {
+        defaultListener.onEvent(event);
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Receives events raised by rides and park objects
+ * Implementations are called on the thread that raised the event, so they should return quickly.
+ */
+@FunctionalInterface
+public interface RideEventListener {
+    /** Listener that ignores every event (the default: no console output) */
+    RideEventListener NO_OP = event -> { };
+
+    void onEvent(RideEvent event);
+}
@@ -0,0 +1,135 @@
+import java.util.*;
+
+/**
+ * Ride history store (default HistoryStore)
+ * Keeps visitors in the order they took the ride and indexes them by id,
+ * so membership checks do not have to walk the whole history.
+ * Visitors with a null id cannot be hashed; they are kept in a separate list that is scanned.
+ */
+public class RideHistory implements HistoryStore {
+    private final ArrayList<Visitor> entries;  // Visitors in the order they took the ride
+    private HashSet<Visitor> index;            // Hash index keyed on visitor id (see Visitor.hashCode)
+    private final ArrayList<Visitor> unindexed = new ArrayList<>();  // Visitors with a null id
+
+    // Default constructor
+    public RideHistory() {
+        this.entries = new ArrayList<>();
+        this.index = new HashSet<>();
+    }
+
+    // Constructor with initial history (keeps the given order)
+    public RideHistory(Collection<Visitor> initialHistory) {
+        this.entries = new ArrayList<>(initialHistory);
+        this.index = HashSet.newHashSet(initialHistory.size());
+        for (Visitor visitor : initialHistory) {
+            addToIndex(visitor);
+        }
+    }
+
+    @Override
+    public boolean add(Visitor visitor) {
+        entries.add(visitor);
+        addToIndex(visitor);
+        return true;
+    }
+
+    private void addToIndex(Visitor visitor) {
+        if (visitor != null && visitor.getId() == null) {
+            unindexed.add(visitor);
+        } else {
+            index.add(visitor);
+        }
+    }
+
+    // Pre-sizes the store before a bulk insert
+    @Override
+    public void ensureCapacity(int additional) {
+        entries.ensureCapacity(entries.size() + additional);
+        if (index.isEmpty() && additional > 0) {
+            index = HashSet.newHashSet(additional);  // Sized once instead of rehashing while it fills
+        }
+    }
+
+    // One copy into the entry list, then one pass over the (pre-sized) index
+    @Override
+    public void addAll(Collection<Visitor> visitors) {
+        ensureCapacity(visitors.size());
+        entries.addAll(visitors);
+        for (Visitor visitor : visitors) {
+            addToIndex(visitor);
+        }
+    }
+
+    /**
+     * Check whether a visitor has taken the ride
+     * Same result as a linear scan with Visitor.equals (id and name), but runs in O(1).
+     * Visitors are indexed when they are added, so changing the id or name of a visitor
+     * that is already in the history is not reflected by this check.
+     * @param visitor the visitor to look up
+     * @return true if an equal visitor is in the history
+     */
+    @Override
+    public boolean contains(Visitor visitor) {
+        if (visitor != null && visitor.getId() == null) {
+            // Visitor.equals cannot compare a null id; match it with null ids and an equal name
+            for (Visitor entry : unindexed) {
+                if (Objects.equals(entry.getName(), visitor.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return index.contains(visitor);
+    }
+
+    // Visitor at a position in history order
+    @Override
+    public Visitor get(int index) {
+        return entries.get(index);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        index.clear();
+        unindexed.clear();
+    }
+
+    // Reordering does not change which visitors are present, so the index stays valid
+    // VisitorComparator order uses precomputed sort keys (see VisitorSortKeys)
+    @Override
+    public void sort(Comparator<Visitor> comparator) {
+        if (VisitorSortKeys.isVisitorOrder(comparator)) {
+            Visitor[] sorted = entries.toArray(new Visitor[0]);
+            if (VisitorSortKeys.sort(sorted)) {
+                for (int i = 0; i < sorted.length; i++) {
+                    entries.set(i, sorted[i]);
+                }
+                return;
+            }
+        }
+        entries.sort(comparator);
+    }
+
+    // Read-only iterator in history order (removal would bypass the index)
+    @Override
+    public Iterator<Visitor> iterator() {
+        return Collections.unmodifiableList(entries).iterator();
+    }
+
+    // Reads only touch the entry list
+    @Override
+    public boolean supportsParallelReads() {
+        return true;
+    }
+}
@@ -1,4 +1,6 @@
+import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Interface defining ride operations
@@ -24,6 +26,21 @@ public interface RideInterface {
     void removeVisitorFromQueue();
     void printQueue();
 
+    /**
+     * Remove a visitor who leaves the line, wherever they are in it (O(1))
+     * @return true if the visitor was queued
+     */
+    boolean removeVisitorFromQueue(Visitor visitor);
+
+    // Whether a visitor with this visitor's id is waiting (O(1)); the queue rejects a second one
+    boolean isQueued(Visitor visitor);
+
+    /**
+     * Where a visitor stands in the waiting queue; lock-free, callable from any thread
+     * @return position and estimated wait, or null if no visitor with this id is waiting
+     */
+    QueuePosition getQueuePosition(String visitorId);
+
     // Ride history management methods
     void addVisitorToHistory(Visitor visitor);
     void checkVisitorFromHistory(Visitor visitor);
@@ -33,13 +50,86 @@ public interface RideInterface {
     // Ride operation methods
     void runOneCycle() throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException;
 
+    /**
+     * Run one cycle only if the ride is ready (used by Park's ride loops)
+     * @return riders boarded; 0 when no operator is assigned or the queue is empty
+     */
+    int tryRunOneCycle();
+
+    /**
+     * Run up to the given number of cycles in one call
+     * Stops early when the queue runs empty; an empty cycle is not counted.
+     * @param cycles maximum number of cycles to run (at least 1)
+     * @return riders processed, cycles run and visitors left in the queue
+     */
+    CycleSummary runCycles(int cycles) throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException;
+
+    /**
+     * Run cycles until the waiting queue is empty
+     * @return riders processed, cycles run and visitors left in the queue
+     */
+    CycleSummary runUntilEmpty() throws exceptions.NoOperatorException, exceptions.NoVisitorsInQueueException;
+
     // File I/O methods
     void exportRideHistory(String filename) throws exceptions.FileOperationException;
-    void importRideHistory(String filename) throws exceptions.FileOperationException;
+
+    /**
+     * Export ride history as UTF-8 CSV
+     * @param filename file to write
+     * @param append   add rows to the end of the file instead of replacing it
+     * @param compress write gzip-compressed output (importRideHistory reads it back)
+     */
+    void exportRideHistory(String filename, boolean append, boolean compress) throws exceptions.FileOperationException;
+    /**
+     * Import ride history from a CSV file (plain or gzip), appending to the current history
+     * @param filename file to read
+     * @return imported and skipped line counts, with the reasons lines were skipped
+     */
+    HistoryImportResult importRideHistory(String filename) throws exceptions.FileOperationException;
+
+    /**
+     * Same as importRideHistory, but parses ranges of the file on all available cores
+     * Visitors are added in file order and error line numbers are the same as a sequential import.
+     */
+    HistoryImportResult importRideHistoryParallel(String filename) throws exceptions.FileOperationException;
+
+    /**
+     * Same as importRideHistory, but rows are only indexed and are decoded when read
+     * Needs a ride built with a LazyCsvHistory store; other stores import eagerly.
+     */
+    HistoryImportResult importRideHistoryLazy(String filename) throws exceptions.FileOperationException;
+
+    /**
+     * Append only the history entries added since the last export of this file
+     * Falls back to a full rewrite when the file cannot be appended to (see Ride for the rules).
+     * @return number of rows written
+     */
+    long exportRideHistoryIncremental(String filename) throws exceptions.FileOperationException;
+
+    /**
+     * Rewrite an incremental export file with the whole history (after sorting or clearing)
+     * @return number of rows written
+     */
+    long compactRideHistoryExport(String filename) throws exceptions.FileOperationException;
+
+    // Binary history format (see BinaryHistoryFormat)
+    void exportRideHistoryBinary(String filename) throws exceptions.FileOperationException;
+    HistoryImportResult importRideHistoryBinary(String filename) throws exceptions.FileOperationException;
+
+    // Whole ride state (name, operator, maxRider, cycles, queue, history) in one binary file (see RideSnapshot)
+    void snapshot(Path file) throws exceptions.FileOperationException;
+    void restore(Path file) throws exceptions.FileOperationException;
 
     // Sorting method
     void sortRideHistory(Comparator<Visitor> comparator);
 
+    // Sorted queries that leave the history order untouched (O(n log k))
+    List<Visitor> topK(Comparator<Visitor> comparator, int k);
+    HistoryPage page(Comparator<Visitor> comparator, int offset, int limit);
+
+    // Counters and latency histograms (enqueued, boarded, cycle latency, queue wait and depth)
+    RideMetrics getMetrics();
+
     // Utility methods for testing
     int getWaitingQueueSize();
     int getHistorySize();
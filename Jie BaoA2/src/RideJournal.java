@@ -0,0 +1,785 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of one ride's queue and history (see Ride.openJournal)
+ * Every queue and history change is appended as a CRC-checked record; replaying the
+ * records over the last checkpoint rebuilds the exact queue order, history and cycle count.
+ *
+ * Group commit: appends only copy the record into a buffer. A thread that needs its record
+ * on disk calls sync, and whichever waiting thread gets there first writes everything
+ * buffered so far and calls fsync once for all of them, while new records keep buffering
+ * for the next batch. Concurrent gates therefore share fsyncs instead of queueing for one each.
+ *
+ * Checkpoints bound the log: the history is written as history-N.rhbf (BinaryHistoryFormat),
+ * then a new journal-N.log starting with the cycle count and queue contents, and the older
+ * generation is deleted. Only the queue is copied under the journal lock; the files are
+ * written outside it, so gates keep queueing (their syncs wait for the new log). Entries a
+ * history store keeps on disk itself (ArchivingRideHistory segments, see
+ * HistoryStore.forceArchived) are left out of history-N and only counted in the checkpoint.
+ * Recovery uses the newest generation whose files are complete and stops at the first torn
+ * or corrupt record (the unsynced tail of a crash).
+ *
+ * The journal records queue order, not queue internals: TieredVisitorQueue's round-robin
+ * credits are not journaled, so after a recovery its boarding round starts afresh and the
+ * riders of the next cycles can differ from those the crashed ride would have boarded.
+ */
+public class RideJournal implements Closeable {
+    /** Log size after which Ride takes a checkpoint by default */
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+    /** Records a bulk operation such as Ride.runCycles may buffer before it syncs */
+    static final long GROUP_COMMIT_BYTES = 1L << 20;
+
+    private static final String LOG_PREFIX = "journal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String HISTORY_PREFIX = "history-";
+    private static final String HISTORY_SUFFIX = ".rhbf";
+    private static final int HEADER_BYTES = 8;  // Record = body length, CRC32C of body, body
+
+    // Record types (first byte of the body)
+    private static final byte STATE = 1;
+    private static final byte ENQUEUE = 2;
+    private static final byte DEQUEUE = 3;
+    private static final byte LEAVE = 4;
+    private static final byte QUEUE_CLEARED = 5;
+    private static final byte BOARD = 6;
+    private static final byte HISTORY_ADD = 7;
+    private static final byte HISTORY_CLEARED = 8;
+    private static final byte CHECKPOINT = 9;  // STATE plus the number of history entries kept by the store
+
+    private final Path directory;
+    private final long checkpointBytes;
+    private final CRC32C crc = new CRC32C();  // For appends, under the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private FileChannel log;
+    private long generation;
+    private long logSize;
+    private ByteBuffer pending = newBuffer(64 * 1024);  // Appended, not yet written
+    private ByteBuffer spare = newBuffer(64 * 1024);  // Swapped with pending by the flushing thread
+    private long appended;  // Bytes appended since opening, over all generations
+    private long durable;  // Prefix of appended that is on disk
+    private int recordStart;  // Position in pending of the record being appended
+    private boolean flushing;  // A thread is writing a batch, or a checkpoint is switching logs
+    private IOException failure;  // A failed checkpoint: records may be missing, nothing is durable any more
+    private long syncs;
+    private long records;
+    private int recoveredCycles;
+    private long recoveredRecords;
+    private boolean recovered;
+    private boolean closed;
+
+    private RideJournal(Path directory, long checkpointBytes) {
+        this.directory = directory;
+        this.checkpointBytes = checkpointBytes;
+    }
+
+    /**
+     * Open the journal in a directory
+     * If the directory holds a journal, queue and history are cleared and rebuilt from it
+     * (see getRecoveredCycles; the history through HistoryStore.resetForRecovery, so archived
+     * segments are kept); otherwise their current contents become the first checkpoint.
+     * @param checkpointBytes log size at which shouldCheckpoint becomes true
+     */
+    static RideJournal open(Path directory, long checkpointBytes, VisitorQueue queue, HistoryStore history,
+                            int cycles) throws IOException {
+        Files.createDirectories(directory);
+        RideJournal journal = new RideJournal(directory, checkpointBytes);
+        long latest = journal.latestGeneration();
+        if (latest < 0) {
+            journal.switchTo(journal.writeGeneration(0, new ArrayList<>(queue), history, cycles), 0);
+        } else {
+            journal.recover(latest, queue, history);
+        }
+        journal.deleteGenerationsBefore(journal.generation);
+        return journal;
+    }
+
+    // Newest generation with both files, or -1 (files are complete once moved into place)
+    private long latestGeneration() throws IOException {
+        long latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                long number = generationOf(file, LOG_PREFIX, LOG_SUFFIX);
+                if (number > latest && Files.exists(historyPath(number))) {
+                    latest = number;
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void recover(long number, VisitorQueue queue, HistoryStore store) throws IOException {
+        queue.clear();
+        Path path = logPath(number);
+        long validEnd;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            RecoveredHistory history = new RecoveredHistory(store, archivedBase(buffer));
+            BinaryHistoryFormat.read(historyPath(number), history::add);
+            validEnd = replay(buffer, queue, history);
+        }
+        generation = number;
+        recovered = true;
+        log = FileChannel.open(path, StandardOpenOption.WRITE);
+        log.truncate(validEnd);  // Drop a torn tail so new records follow valid ones
+        log.position(validEnd);
+        logSize = validEnd;
+    }
+
+    // Applies records until the first incomplete or corrupt one, returns where it stopped
+    private long replay(ByteBuffer buffer, VisitorQueue queue, RecoveredHistory history) {
+        int cycles = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer body = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            buffer.position(buffer.position() + length);
+            try {
+                cycles = apply(body, queue, history, cycles);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                buffer.position(start);  // A record that passed the CRC but does not decode: stop here too
+                break;
+            }
+            recoveredRecords++;
+        }
+        recoveredCycles = cycles;
+        return buffer.position();
+    }
+
+    // History entries the checkpoint that starts the log left to the store, from its CHECKPOINT record
+    // (a log written before CHECKPOINT existed starts with STATE and covers the whole history)
+    private static long archivedBase(ByteBuffer log) throws IOException {
+        int length = (log.limit() >= HEADER_BYTES) ? log.getInt(0) : 0;
+        if (length < 1 + 2 * Integer.BYTES + Long.BYTES || length > log.limit() - HEADER_BYTES
+                || log.get(HEADER_BYTES) != CHECKPOINT) {
+            return 0;
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(log.slice(HEADER_BYTES, length));
+        if ((int) checksum.getValue() != log.getInt(4)) {
+            return 0;  // replay stops at this record as well
+        }
+        long base = log.getLong(HEADER_BYTES + 1 + Integer.BYTES);
+        if (base < 0) {
+            throw new IOException("Corrupt journal checkpoint: " + base + " archived entries");
+        }
+        return base;
+    }
+
+    private static int apply(ByteBuffer body, VisitorQueue queue, RecoveredHistory history, int cycles) {
+        byte type = body.get();
+        switch (type) {
+            case STATE, CHECKPOINT -> {
+                cycles = body.getInt();
+                if (type == CHECKPOINT) {
+                    body.getLong();  // Archived base, read by archivedBase before the history file
+                }
+                for (int i = body.getInt(); i > 0; i--) {
+                    queue.offer(getVisitor(body));
+                }
+            }
+            case ENQUEUE -> queue.offer(getVisitor(body));
+            case DEQUEUE, LEAVE -> take(queue, getString(body));
+            case QUEUE_CLEARED -> queue.clear();
+            case BOARD -> {
+                for (int i = body.getInt(); i > 0; i--) {
+                    Visitor visitor = getVisitor(body);
+                    take(queue, visitor.getId());
+                    history.add(visitor);
+                }
+                cycles++;
+            }
+            case HISTORY_ADD -> history.add(getVisitor(body));
+            case HISTORY_CLEARED -> {
+                history.clear();
+                cycles = 0;
+            }
+            default -> throw new IllegalArgumentException("Unknown journal record type " + type);
+        }
+        return cycles;
+    }
+
+    // History being rebuilt; entries the store kept through resetForRecovery are skipped, not added twice
+    private static final class RecoveredHistory {
+        private final HistoryStore store;
+        private long kept;  // Leading entries still to skip
+
+        // base: leading entries the checkpoint did not write because the store had them on disk
+        RecoveredHistory(HistoryStore store, long base) throws IOException {
+            this.store = store;
+            this.kept = store.resetForRecovery() - base;
+            if (kept < 0) {
+                throw new IOException("Journal checkpoint expects " + base + " archived history entries, the store has "
+                        + (kept + base));
+            }
+        }
+
+        void add(Visitor visitor) {
+            if (kept > 0) {
+                kept--;
+            } else {
+                store.add(visitor);
+            }
+        }
+
+        void clear() {
+            store.clear();
+            kept = 0;
+        }
+    }
+
+    // Removes a visitor that left the queue; polls when it is the head, as it was when it boarded
+    // (so queues advance their head as they did), else removes it by id
+    private static void take(VisitorQueue queue, String id) {
+        Visitor head = queue.peek();
+        if (id == null || id.isBlank() || (head != null && id.equals(head.getId()))) {
+            queue.poll();
+        } else {
+            queue.removeVisitor(id);
+        }
+    }
+
+    // Journal operations: each returns the sequence to pass to sync
+
+    long appendEnqueue(Visitor visitor) {
+        lock.lock();
+        try {
+            return end(putVisitor(begin(ENQUEUE), visitor));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long appendDequeue(Visitor visitor) {
+        lock.lock();
+        try {
+            return end(putId(begin(DEQUEUE), visitor));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long appendLeave(Visitor visitor) {
+        lock.lock();
+        try {
+            return end(putId(begin(LEAVE), visitor));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long appendQueueCleared() {
+        lock.lock();
+        try {
+            return end(begin(QUEUE_CLEARED));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // One cycle: the riders left the queue in this order and joined the history
+    long appendBoard(List<Visitor> riders) {
+        lock.lock();
+        try {
+            ByteBuffer body = begin(BOARD);
+            body.putInt(riders.size());
+            for (Visitor rider : riders) {
+                body = putVisitor(body, rider);
+            }
+            return end(body);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hold the journal lock, so a queue change and its record are in the same order for every
+     * thread (a ReentrantLock rather than a monitor, so waiting virtual threads do not pin their carrier)
+     */
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    long appendHistoryAdd(Visitor visitor) {
+        lock.lock();
+        try {
+            return end(putVisitor(begin(HISTORY_ADD), visitor));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long appendHistoryCleared() {
+        lock.lock();
+        try {
+            return end(begin(HISTORY_CLEARED));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reserves the record header in the pending buffer and starts the body
+    private ByteBuffer begin(byte type) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed: " + directory);
+        }
+        pending = ensure(pending, HEADER_BYTES + 1 + Integer.BYTES);
+        recordStart = pending.position();
+        pending.position(recordStart + HEADER_BYTES);
+        return pending.put(type);
+    }
+
+    // Fills in the header of the record begun last (body may have been grown into a new buffer)
+    private long end(ByteBuffer body) {
+        pending = body;
+        int bodyStart = recordStart + HEADER_BYTES;
+        int length = pending.position() - bodyStart;
+        crc.reset();
+        crc.update(pending.slice(bodyStart, length));
+        pending.putInt(recordStart, length).putInt(recordStart + 4, (int) crc.getValue());
+        appended += HEADER_BYTES + length;
+        records++;
+        return appended;
+    }
+
+    /**
+     * Block until everything up to sequence is on disk
+     * The first waiting thread writes and fsyncs the whole pending batch for everyone.
+     */
+    void sync(long sequence) throws IOException {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            FileChannel channel;
+            lock.lock();
+            try {
+                while (flushing && durable < sequence) {
+                    awaitFlush();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                if (durable >= sequence) {
+                    return;
+                }
+                flushing = true;
+                batch = pending;
+                pending = spare;
+                batchEnd = appended;
+                channel = log;
+            } finally {
+                lock.unlock();
+            }
+            IOException writeFailure = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+            lock.lock();
+            try {
+                batch.clear();
+                spare = batch;
+                flushing = false;
+                if (writeFailure == null) {
+                    logSize = channel.position();
+                    durable = Math.max(durable, batchEnd);
+                    syncs++;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+        }
+    }
+
+    // Called with the lock held
+    private void awaitFlush() throws IOException {
+        try {
+            flushed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the journal to sync", e);
+        }
+    }
+
+    // Whether the log has grown past the checkpoint size
+    boolean shouldCheckpoint() {
+        lock.lock();
+        try {
+            return logSize + pending.position() >= checkpointBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start a new generation from the current state and delete the old one
+     * The queue is copied under the lock; the history and the new log are written outside it,
+     * while gates keep appending (their syncs wait for the new log). The caller must be the
+     * only thread changing the history or taking visitors out of the queue.
+     */
+    void checkpoint(VisitorQueue queue, HistoryStore history, int cycles) throws IOException {
+        List<Visitor> queued;
+        long covered;
+        long number;
+        lock.lock();
+        try {
+            while (flushing) {
+                awaitFlush();  // Let a batch in progress finish on the old log
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            queued = new ArrayList<>(queue);
+            pending.clear();  // Records not yet written are covered by the new checkpoint
+            covered = appended;
+            number = generation + 1;
+            flushing = true;  // Later records wait for the new log
+        } finally {
+            lock.unlock();
+        }
+        FileChannel channel = null;
+        try {
+            channel = writeGeneration(number, queued, history, cycles);
+        } finally {
+            lock.lock();
+            try {
+                if (channel != null) {
+                    switchTo(channel, number);
+                    durable = Math.max(durable, covered);
+                } else {
+                    failure = new IOException("Journal checkpoint failed in " + directory);
+                }
+                flushing = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        deleteGenerationsBefore(generation);
+    }
+
+    // Makes a written generation the current log; called with the lock held (or while opening)
+    private void switchTo(FileChannel channel, long number) throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        log = channel;  // Still open on the moved file
+        logSize = channel.position();
+        generation = number;
+    }
+
+    /**
+     * Writes history-N then journal-N (each synced and moved into place, then the directory
+     * synced) and returns the new log, open at its end
+     * History entries in the store's archived prefix (HistoryStore.forceArchived) are not written.
+     */
+    private FileChannel writeGeneration(long number, List<Visitor> queue, HistoryStore history, int cycles)
+            throws IOException {
+        long base = history.forceArchived();
+        Path historyTemporary = directory.resolve(historyPath(number).getFileName() + ".tmp");
+        BinaryHistoryFormat.write(historyTemporary, (base == 0) ? history : entries(history, (int) base, history.size()));
+        force(historyTemporary);
+        Files.move(historyTemporary, historyPath(number), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+
+        ByteBuffer body = newBuffer(64 * 1024);
+        body.put(CHECKPOINT).putInt(cycles).putLong(base).putInt(queue.size());
+        for (Visitor visitor : queue) {
+            body = putVisitor(body, visitor);
+        }
+        body.flip();
+        CRC32C checksum = new CRC32C();  // crc belongs to appends, which run concurrently
+        checksum.update(body.duplicate());
+        ByteBuffer header = newBuffer(HEADER_BYTES).putInt(body.remaining()).putInt((int) checksum.getValue()).flip();
+
+        Path temporary = directory.resolve(logPath(number).getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(false);
+            Files.move(temporary, logPath(number), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();  // The new generation must be on disk before the old one is deleted
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    // History entries from start to end, in order
+    private static List<Visitor> entries(HistoryStore history, int start, int end) {
+        return new AbstractList<>() {
+            @Override
+            public Visitor get(int index) {
+                return history.get(start + index);
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    private static void force(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Syncs the directory so the moves into it survive a crash; skipped where a directory
+    // cannot be opened as a file (Windows)
+    private void forceDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private void deleteGenerationsBefore(long number) throws IOException {
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long log = generationOf(file, LOG_PREFIX, LOG_SUFFIX);
+                long history = generationOf(file, HISTORY_PREFIX, HISTORY_SUFFIX);
+                if ((log >= 0 && log < number) || (history >= 0 && history < number)
+                        || file.getFileName().toString().endsWith(".tmp")) {
+                    stale.add(file);
+                }
+            }
+        }
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Generation number in a file name like journal-000012.log, or -1 if it does not match
+    private static long generationOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path logPath(long number) {
+        return directory.resolve(String.format("%s%06d%s", LOG_PREFIX, number, LOG_SUFFIX));
+    }
+
+    private Path historyPath(long number) {
+        return directory.resolve(String.format("%s%06d%s", HISTORY_PREFIX, number, HISTORY_SUFFIX));
+    }
+
+    // Writes what is pending and closes the log
+    @Override
+    public void close() throws IOException {
+        long sequence;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            sequence = appended;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            sync(sequence);
+        } finally {
+            lock.lock();
+            try {
+                closed = true;
+                log.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Checkpoint number of the current log
+    public long getGeneration() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Bytes in the current log file, not counting records still buffered
+    public long getLogSize() {
+        lock.lock();
+        try {
+            return logSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Records appended since opening
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // fsync calls since opening; fewer than records when commits were grouped
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Records replayed when the journal was opened (0 for a new journal)
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    // Whether opening found an existing journal and replaced the ride's state with it
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    int getRecoveredCycles() {
+        return recoveredCycles;
+    }
+
+    // Record encoding: strings as UTF-8 byte count (-1 for null) and bytes, all little-endian
+
+    // Returns the buffer written to, which is a larger copy if the visitor did not fit
+    private static ByteBuffer putVisitor(ByteBuffer buffer, Visitor visitor) {
+        byte[] name = bytes(visitor.getName());
+        byte[] id = bytes(visitor.getId());
+        byte[] membershipLevel = bytes(visitor.getMembershipLevel());
+        buffer = ensure(buffer, 5 * Integer.BYTES + length(name) + length(id) + length(membershipLevel));
+        putBytes(buffer, name);
+        buffer.putInt(visitor.getAge());
+        putBytes(buffer, id);
+        putBytes(buffer, membershipLevel);
+        return buffer.putInt(visitor.getTickets());
+    }
+
+    private static ByteBuffer putId(ByteBuffer buffer, Visitor visitor) {
+        byte[] id = bytes(visitor.getId());
+        buffer = ensure(buffer, Integer.BYTES + length(id));
+        putBytes(buffer, id);
+        return buffer;
+    }
+
+    private static Visitor getVisitor(ByteBuffer buffer) {
+        String name = getString(buffer);
+        int age = buffer.getInt();
+        String id = getString(buffer);
+        String membershipLevel = getString(buffer);
+        return VisitorRegistry.resolve(name, age, id, membershipLevel, buffer.getInt());
+    }
+
+    private static byte[] bytes(String value) {
+        return (value == null) ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return (bytes == null) ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < -1) {
+            throw new IllegalArgumentException("Bad string length " + length);
+        }
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // The buffer, or a copy at least twice as large, with room for needed more bytes
+    private static ByteBuffer ensure(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        ByteBuffer larger = newBuffer(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        return larger.put(buffer.flip());
+    }
+}
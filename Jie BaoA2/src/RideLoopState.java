@@ -0,0 +1,15 @@
+/**
+ * State of a ride's cycle loop in a Park
+ */
+public enum RideLoopState {
+    /** Registered but the park has not been started */
+    WAITING,
+    /** Boarding riders every cycle interval */
+    RUNNING,
+    /** No operator assigned; the loop backs off and checks again */
+    NO_OPERATOR,
+    /** Queue empty; the loop backs off until visitors arrive */
+    QUEUE_EMPTY,
+    /** Loop finished after Park.shutdown */
+    STOPPED
+}
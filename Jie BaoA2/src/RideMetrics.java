@@ -0,0 +1,287 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-ride metrics, updated by the ride as it works
+ * Counters are LongAdders, so gate threads adding visitors do not contend on one field.
+ * Distributions go into lock-free Histograms:
+ *   cycle latency  time to board one cycle's riders into the history (event listeners excluded),
+ *                  timed for one cycle in CYCLE_SAMPLE_INTERVAL
+ *   queue wait     time from addVisitorToQueue to boarding, for the riders whose enqueue the
+ *                  queue timed (one in VisitorQueue.WAIT_SAMPLE_INTERVAL)
+ *   queue depth    visitors waiting when a cycle starts
+ * Recording does not allocate, and sampling keeps the clock reads to about one per cycle.
+ * Read them with snapshot(), or through JMX after registerMBean().
+ */
+public class RideMetrics implements RideMetricsMXBean {
+    private static final String DOMAIN = "ThemePark";
+
+    /** Cycle latency is timed for cycles whose number is a multiple of this (a power of two) */
+    public static final int CYCLE_SAMPLE_INTERVAL = 8;
+
+    /** Summary of one histogram */
+    public static class Distribution {
+        private final long count;
+        private final long p50;
+        private final long p99;
+        private final long max;
+
+        public Distribution(Histogram histogram) {
+            this.count = histogram.getCount();
+            this.p50 = histogram.getPercentile(50);
+            this.p99 = histogram.getPercentile(99);
+            this.max = histogram.getMax();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "p50=" + p50 + " p99=" + p99 + " max=" + max;
+        }
+    }
+
+    /** Point-in-time copy of all metrics */
+    public static class Snapshot {
+        private final long enqueued;
+        private final long boarded;
+        private final long cycles;
+        private final long removed;
+        private final int queueDepth;
+        private final Distribution cycleLatencyNanos;
+        private final Distribution queueWaitNanos;
+        private final Distribution queueDepths;
+
+        Snapshot(RideMetrics metrics) {
+            this.enqueued = metrics.enqueued.sum();
+            this.boarded = metrics.boarded.sum();
+            this.cycles = metrics.cycles.sum();
+            this.removed = metrics.removed.sum();
+            this.queueDepth = metrics.currentDepth.getAsInt();
+            this.cycleLatencyNanos = new Distribution(metrics.cycleLatency);
+            this.queueWaitNanos = new Distribution(metrics.queueWait);
+            this.queueDepths = new Distribution(metrics.queueDepth);
+        }
+
+        public long getEnqueued() {
+            return enqueued;
+        }
+
+        public long getBoarded() {
+            return boarded;
+        }
+
+        public long getCycles() {
+            return cycles;
+        }
+
+        // Visitors taken out of the queue without riding (removeVisitorFromQueue, clearQueue)
+        public long getRemoved() {
+            return removed;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public Distribution getCycleLatencyNanos() {
+            return cycleLatencyNanos;
+        }
+
+        public Distribution getQueueWaitNanos() {
+            return queueWaitNanos;
+        }
+
+        public Distribution getQueueDepths() {
+            return queueDepths;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RideMetrics{enqueued=%d, boarded=%d, cycles=%d, removed=%d, queueDepth=%d, " +
+                            "cycleLatencyNanos{%s}, queueWaitNanos{%s}, queueDepth{%s}}",
+                    enqueued, boarded, cycles, removed, queueDepth, cycleLatencyNanos, queueWaitNanos, queueDepths);
+        }
+    }
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder boarded = new LongAdder();
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final Histogram cycleLatency = new Histogram();
+    private final Histogram queueWait = new Histogram();
+    private final Histogram queueDepth = new Histogram();
+    private final IntSupplier currentDepth;
+    private ObjectName objectName;  // Set while registered with JMX
+
+    // Constructor with the source of the current queue depth
+    public RideMetrics(IntSupplier currentDepth) {
+        this.currentDepth = currentDepth;
+    }
+
+    void recordEnqueued(long count) {
+        enqueued.add(count);
+    }
+
+    void recordRemoved(long count) {
+        removed.add(count);
+    }
+
+    void recordQueueDepth(int depth) {
+        queueDepth.record(depth);
+    }
+
+    void recordWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    void recordCycle(int riders) {
+        cycles.increment();
+        boarded.add(riders);
+    }
+
+    void recordCycleLatency(long nanos) {
+        cycleLatency.record(nanos);
+    }
+
+    // Whether the cycle with this number (counting from 0) is one whose latency is timed
+    static boolean timesCycle(long cycle) {
+        return (cycle & (CYCLE_SAMPLE_INTERVAL - 1)) == 0;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Register these metrics with the platform MBean server
+     * Name: ThemePark:type=RideMetrics,name="<rideName>"
+     * @return the name registered under
+     */
+    public synchronized ObjectName registerMBean(String rideName) throws JMException {
+        if (objectName != null) {
+            return objectName;
+        }
+        ObjectName name = new ObjectName(DOMAIN + ":type=RideMetrics,name=" + ObjectName.quote(rideName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        objectName = name;
+        return name;
+    }
+
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    // MXBean attributes
+
+    @Override
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    @Override
+    public long getBoarded() {
+        return boarded.sum();
+    }
+
+    @Override
+    public long getCycles() {
+        return cycles.sum();
+    }
+
+    @Override
+    public long getRemoved() {
+        return removed.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return currentDepth.getAsInt();
+    }
+
+    @Override
+    public long getCycleLatencyP50Nanos() {
+        return cycleLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getCycleLatencyP99Nanos() {
+        return cycleLatency.getPercentile(99);
+    }
+
+    @Override
+    public long getCycleLatencyMaxNanos() {
+        return cycleLatency.getMax();
+    }
+
+    @Override
+    public long getQueueWaitP50Nanos() {
+        return queueWait.getPercentile(50);
+    }
+
+    @Override
+    public long getQueueWaitP99Nanos() {
+        return queueWait.getPercentile(99);
+    }
+
+    @Override
+    public long getQueueWaitMaxNanos() {
+        return queueWait.getMax();
+    }
+
+    @Override
+    public long getQueueDepthP50() {
+        return queueDepth.getPercentile(50);
+    }
+
+    @Override
+    public long getQueueDepthP99() {
+        return queueDepth.getPercentile(99);
+    }
+
+    @Override
+    public long getQueueDepthMax() {
+        return queueDepth.getMax();
+    }
+
+    // Clears counters and histograms (values recorded concurrently may be lost)
+    @Override
+    public void reset() {
+        enqueued.reset();
+        boarded.reset();
+        cycles.reset();
+        removed.reset();
+        cycleLatency.reset();
+        queueWait.reset();
+        queueDepth.reset();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * JMX view of a ride's metrics (see RideMetrics.registerMBean)
+ * Latencies and waits are in nanoseconds; depths are numbers of visitors.
+ */
+public interface RideMetricsMXBean {
+    long getEnqueued();
+    long getBoarded();
+    long getCycles();
+    long getRemoved();
+    int getQueueDepth();
+
+    long getCycleLatencyP50Nanos();
+    long getCycleLatencyP99Nanos();
+    long getCycleLatencyMaxNanos();
+
+    long getQueueWaitP50Nanos();
+    long getQueueWaitP99Nanos();
+    long getQueueWaitMaxNanos();
+
+    long getQueueDepthP50();
+    long getQueueDepthP99();
+    long getQueueDepthMax();
+
+    void reset();
+}
@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Complete state of a ride in one binary file (see Ride.snapshot and Ride.restore)
+ * Uses the BinaryHistoryFormat building blocks, with one dictionary shared by the ride,
+ * its operator, the queue and the history (little-endian):
+ *
+ *   magic         4 bytes  "RSNP"
+ *   version       u16      VERSION
+ *   flags         u16      HAS_OPERATOR
+ *   dictSize      i32      number of dictionary strings
+ *   queueCount    i32      visitors in the queue
+ *   historyCount  i32      visitors in the history
+ *   maxRider      i32
+ *   numOfCycles   i32
+ *   rideName      i32      dictionary code
+ *   operator      5 x i32  name, age, id, position, employeeId (only with HAS_OPERATOR)
+ *   dictionary    as in BinaryHistoryFormat, padded to a multiple of 4 bytes
+ *   queue         queueCount x (name, id, membership, age, tickets), in queue iteration order
+ *   history       historyCount x (name, id, membership, age, tickets)
+ *
+ * Reading maps the file and bulk-transfers the fixed-width records, decoding chunks of them
+ * on all cores, so restore time is dominated by creating the Visitor objects.
+ */
+public final class RideSnapshot {
+    static final int MAGIC = 0x504E5352;  // "RSNP" read as a little-endian int
+    static final short VERSION = 1;
+    private static final short HAS_OPERATOR = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int RECORDS_PER_CHUNK = 64 * 1024;
+
+    private final String rideName;
+    private final Employee operator;
+    private final int maxRider;
+    private final int numOfCycles;
+    private final List<Visitor> queue;
+    private final List<Visitor> history;
+
+    private RideSnapshot(String rideName, Employee operator, int maxRider, int numOfCycles,
+                         List<Visitor> queue, List<Visitor> history) {
+        this.rideName = rideName;
+        this.operator = operator;
+        this.maxRider = maxRider;
+        this.numOfCycles = numOfCycles;
+        this.queue = queue;
+        this.history = history;
+    }
+
+    /**
+     * Write a snapshot, replacing the file
+     * The file is written under a temporary name, synced and then moved into place,
+     * so a crash never leaves a half-written snapshot.
+     */
+    static void write(Path path, String rideName, Employee operator, int maxRider, int numOfCycles,
+                      Iterable<Visitor> queue, HistoryStore history) throws IOException {
+        // First pass: dictionary of distinct strings in order of first use
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        BinaryHistoryFormat.code(codes, dictionary, rideName);
+        if (operator != null) {
+            BinaryHistoryFormat.code(codes, dictionary, operator.getName());
+            BinaryHistoryFormat.code(codes, dictionary, operator.getId());
+            BinaryHistoryFormat.code(codes, dictionary, operator.getPosition());
+            BinaryHistoryFormat.code(codes, dictionary, operator.getEmployeeId());
+        }
+        int queueCount = addCodes(codes, dictionary, queue);
+        int historyCount = addCodes(codes, dictionary, history);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putShort(VERSION).putShort(operator != null ? HAS_OPERATOR : 0);
+            buffer.putInt(dictionary.size()).putInt(queueCount).putInt(historyCount);
+            buffer.putInt(maxRider).putInt(numOfCycles).putInt(codes.get(rideName));
+            if (operator != null) {
+                buffer.putInt(codes.get(operator.getName())).putInt(operator.getAge())
+                        .putInt(codes.get(operator.getId())).putInt(codes.get(operator.getPosition()))
+                        .putInt(codes.get(operator.getEmployeeId()));
+            }
+            BinaryHistoryFormat.writeDictionary(channel, buffer, dictionary);
+
+            // Second pass: fixed-width records, queue then history
+            writeRecords(channel, buffer, codes, queue);
+            writeRecords(channel, buffer, codes, history);
+            BinaryHistoryFormat.flush(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int addCodes(Map<String, Integer> codes, List<String> dictionary, Iterable<Visitor> visitors) {
+        int count = 0;
+        for (Visitor visitor : visitors) {
+            BinaryHistoryFormat.code(codes, dictionary, visitor.getName());
+            BinaryHistoryFormat.code(codes, dictionary, visitor.getId());
+            BinaryHistoryFormat.code(codes, dictionary, visitor.getMembershipLevel());
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeRecords(FileChannel channel, ByteBuffer buffer, Map<String, Integer> codes,
+                                     Iterable<Visitor> visitors) throws IOException {
+        for (Visitor visitor : visitors) {
+            if (buffer.remaining() < BinaryHistoryFormat.INTS_PER_RECORD * Integer.BYTES) {
+                BinaryHistoryFormat.flush(channel, buffer);
+            }
+            buffer.putInt(codes.get(visitor.getName()));
+            buffer.putInt(codes.get(visitor.getId()));
+            buffer.putInt(codes.get(visitor.getMembershipLevel()));
+            buffer.putInt(visitor.getAge());
+            buffer.putInt(visitor.getTickets());
+        }
+    }
+
+    /**
+     * Read a whole snapshot
+     * Nothing is returned unless the file decodes completely, so a ride restoring from a
+     * corrupt snapshot keeps its current state.
+     */
+    static RideSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Ride snapshot too large: " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 32 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a ride snapshot file: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported ride snapshot version " + version + " in " + path);
+            }
+            short flags = buffer.getShort();
+            int dictSize = buffer.getInt();
+            int queueCount = buffer.getInt();
+            int historyCount = buffer.getInt();
+            int maxRider = buffer.getInt();
+            int numOfCycles = buffer.getInt();
+            if (maxRider < 1 || numOfCycles < 0) {
+                throw new IOException("Corrupt ride snapshot file: maxRider " + maxRider + ", cycles " + numOfCycles
+                        + " in " + path);
+            }
+            int rideNameCode = buffer.getInt();
+            int[] operatorFields = null;
+            if ((flags & HAS_OPERATOR) != 0) {
+                operatorFields = new int[5];
+                buffer.asIntBuffer().get(operatorFields);
+                buffer.position(buffer.position() + operatorFields.length * Integer.BYTES);
+            }
+            String[] dictionary = BinaryHistoryFormat.readDictionary(buffer, dictSize);
+
+            String rideName = lookup(dictionary, rideNameCode);
+            Employee operator = (operatorFields == null) ? null : new Employee(lookup(dictionary, operatorFields[0]),
+                    operatorFields[1], lookup(dictionary, operatorFields[2]), lookup(dictionary, operatorFields[3]),
+                    lookup(dictionary, operatorFields[4]));
+            return new RideSnapshot(rideName, operator, maxRider, numOfCycles,
+                    readVisitors(buffer, queueCount, dictionary), readVisitors(buffer, historyCount, dictionary));
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt ride snapshot file: " + path, e);
+        }
+    }
+
+    // Records are fixed-width, so chunks are decoded in parallel straight into their slots
+    // (an out-of-range dictionary code throws IndexOutOfBoundsException)
+    private static List<Visitor> readVisitors(ByteBuffer buffer, int count, String[] dictionary) throws IOException {
+        int ints = BinaryHistoryFormat.INTS_PER_RECORD;
+        if (count < 0 || (long) count * ints * Integer.BYTES > buffer.remaining()) {
+            throw new IOException("Corrupt visitor count: " + count);
+        }
+        IntBuffer records = buffer.asIntBuffer();
+        Visitor[] visitors = new Visitor[count];
+        IntStream.range(0, (count + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK).parallel().forEach(chunk -> {
+            int first = chunk * RECORDS_PER_CHUNK;
+            int length = Math.min(RECORDS_PER_CHUNK, count - first);
+            int[] batch = new int[length * ints];
+            records.get(first * ints, batch, 0, batch.length);  // Absolute bulk read, safe to share
+            for (int r = 0, i = 0; r < length; r++, i += ints) {
+                visitors[first + r] = VisitorRegistry.resolve(dictionary[batch[i]], batch[i + 3],
+                        dictionary[batch[i + 1]], dictionary[batch[i + 2]], batch[i + 4]);
+            }
+        });
+        buffer.position(buffer.position() + count * ints * Integer.BYTES);
+        return Collections.unmodifiableList(Arrays.asList(visitors));
+    }
+
+    private static String lookup(String[] dictionary, int code) throws IOException {
+        if (code < 0 || code >= dictionary.length) {
+            throw new IOException("Corrupt dictionary reference: " + code);
+        }
+        return dictionary[code];
+    }
+
+    public String getRideName() {
+        return rideName;
+    }
+
+    public Employee getOperator() {
+        return operator;
+    }
+
+    public int getMaxRider() {
+        return maxRider;
+    }
+
+    public int getNumOfCycles() {
+        return numOfCycles;
+    }
+
+    // Queue in iteration order (arrival order, tier by tier for a TieredVisitorQueue)
+    public List<Visitor> getQueue() {
+        return queue;
+    }
+
+    public List<Visitor> getHistory() {
+        return history;
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a ParkSimulation run
+ * Times are in simulated milliseconds unless stated otherwise.
+ */
+public class SimulationReport {
+
+    /** Outcome for one ride */
+    public static class RideResult {
+        private final String rideName;
+        private final long arrivals;
+        private final long riders;
+        private final long cycles;
+        private final int leftInQueue;
+        private final int maxQueueLength;
+        private final Histogram waitTimes;
+        private final long busyMillis;
+        private final long staffedMillis;
+        private final long openMillis;
+        private final int maxRider;
+
+        public RideResult(String rideName, long arrivals, long riders, long cycles, int leftInQueue,
+                          int maxQueueLength, Histogram waitTimes, long busyMillis, long staffedMillis,
+                          long openMillis, int maxRider) {
+            this.rideName = rideName;
+            this.arrivals = arrivals;
+            this.riders = riders;
+            this.cycles = cycles;
+            this.leftInQueue = leftInQueue;
+            this.maxQueueLength = maxQueueLength;
+            this.waitTimes = waitTimes;
+            this.busyMillis = busyMillis;
+            this.staffedMillis = staffedMillis;
+            this.openMillis = openMillis;
+            this.maxRider = maxRider;
+        }
+
+        public String getRideName() {
+            return rideName;
+        }
+
+        public long getArrivals() {
+            return arrivals;
+        }
+
+        public long getRiders() {
+            return riders;
+        }
+
+        public long getCycles() {
+            return cycles;
+        }
+
+        // Visitors still waiting at closing time
+        public int getLeftInQueue() {
+            return leftInQueue;
+        }
+
+        public int getMaxQueueLength() {
+            return maxQueueLength;
+        }
+
+        // Queue wait of every rider, in milliseconds
+        public Histogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        // Share of opening hours the ride was running a cycle
+        public double getUtilization() {
+            return (openMillis == 0) ? 0.0 : Math.min(1.0, (double) busyMillis / openMillis);
+        }
+
+        // Share of staffed time the ride was running a cycle
+        public double getStaffedUtilization() {
+            return (staffedMillis == 0) ? 0.0 : Math.min(1.0, (double) busyMillis / staffedMillis);
+        }
+
+        // Share of seats filled over all cycles
+        public double getSeatUtilization() {
+            return (cycles == 0) ? 0.0 : (double) riders / (cycles * (long) maxRider);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s arrivals=%,d riders=%,d cycles=%,d left=%,d maxQueue=%,d " +
+                            "wait p50=%s p90=%s p99=%s max=%s utilization=%.1f%% seats=%.1f%%",
+                    rideName, arrivals, riders, cycles, leftInQueue, maxQueueLength,
+                    minutes(waitTimes.getPercentile(50)), minutes(waitTimes.getPercentile(90)),
+                    minutes(waitTimes.getPercentile(99)), minutes(waitTimes.getMax()),
+                    100 * getUtilization(), 100 * getSeatUtilization());
+        }
+    }
+
+    private final long seed;
+    private final long dayMillis;
+    private final long eventsProcessed;
+    private final long wallNanos;
+    private final List<RideResult> rides;
+
+    public SimulationReport(long seed, long dayMillis, long eventsProcessed, long wallNanos, List<RideResult> rides) {
+        this.seed = seed;
+        this.dayMillis = dayMillis;
+        this.eventsProcessed = eventsProcessed;
+        this.wallNanos = wallNanos;
+        this.rides = Collections.unmodifiableList(rides);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getDayMillis() {
+        return dayMillis;
+    }
+
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+
+    // Real time the run took, in nanoseconds
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public List<RideResult> getRides() {
+        return rides;
+    }
+
+    public RideResult getRide(String rideName) {
+        for (RideResult ride : rides) {
+            if (ride.getRideName().equals(rideName)) {
+                return ride;
+            }
+        }
+        return null;
+    }
+
+    public long getTotalArrivals() {
+        long total = 0;
+        for (RideResult ride : rides) {
+            total += ride.getArrivals();
+        }
+        return total;
+    }
+
+    public long getTotalRiders() {
+        long total = 0;
+        for (RideResult ride : rides) {
+            total += ride.getRiders();
+        }
+        return total;
+    }
+
+    // Wait times of all rides combined
+    public Histogram getParkWaitTimes() {
+        Histogram all = new Histogram();
+        for (RideResult ride : rides) {
+            all.add(ride.getWaitTimes());
+        }
+        return all;
+    }
+
+    // Formats milliseconds as minutes and seconds (e.g. "12m05s")
+    static String minutes(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%dm%02ds", seconds / 60, seconds % 60);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Simulated %.1f h (seed %d): %,d arrivals, %,d riders, %,d events in %,d ms%n",
+                dayMillis / 3_600_000.0, seed, getTotalArrivals(), getTotalRiders(), eventsProcessed,
+                wallNanos / 1_000_000));
+        for (RideResult ride : rides) {
+            text.append("  ").append(ride).append(System.lineSeparator());
+        }
+        return text.toString().stripTrailing();
+    }
+}
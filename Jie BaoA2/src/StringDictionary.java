@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+/**
+ * Assigns dense int codes to distinct Strings (dictionary encoding)
+ * Open-addressing table over primitive arrays, so each distinct String costs
+ * about 20 bytes on top of the String itself. Slots hold the String's hash next to its
+ * code, so probing only reads a String when the hashes match. null is encoded as NULL_CODE.
+ */
+public class StringDictionary {
+    public static final int NULL_CODE = -1;
+    public static final int NOT_FOUND = -2;
+
+    private String[] values;  // code -> String
+    private long[] slots;     // hash slot -> (hash << 32) | (code + 1), 0 = empty
+    private int size;
+
+    public StringDictionary() {
+        this.values = new String[16];
+        this.slots = new long[32];
+    }
+
+    // Code of a String, adding it when it is new
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        int hash = value.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        long entry;
+        while ((entry = slots[slot]) != 0) {
+            int code = (int) entry - 1;
+            if ((int) (entry >>> 32) == hash && values[code].equals(value)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        slots[slot] = ((long) hash << 32) | (size + 1);
+        size++;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    // Code of a String without adding it (NOT_FOUND when it has never been encoded)
+    public int find(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        int hash = value.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        long entry;
+        while ((entry = slots[slot]) != 0) {
+            int code = (int) entry - 1;
+            if ((int) (entry >>> 32) == hash && values[code].equals(value)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    public String decode(int code) {
+        return (code == NULL_CODE) ? null : values[code];
+    }
+
+    // Distinct Strings indexed by code
+    public String[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        values = new String[16];
+        slots = new long[32];
+        size = 0;
+    }
+
+    private void rehash() {
+        long[] grown = new long[slots.length * 2];
+        int mask = grown.length - 1;
+        for (long entry : slots) {
+            if (entry != 0) {
+                int slot = mix((int) (entry >>> 32)) & mask;
+                while (grown[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = entry;
+            }
+        }
+        slots = grown;
+    }
+
+    // Spreads hash bits into the low bits used for the slot (murmur3 finalizer)
+    static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+}
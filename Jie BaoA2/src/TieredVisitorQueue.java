@@ -0,0 +1,231 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Fast-pass style boarding queue (QueuePolicy.TIERED)
+ * One FIFO per membership tier (Gold, Silver, Standard, Basic), so offer and poll are O(1).
+ * Seats are filled by weighted round robin: each round a tier may board up to its weight
+ * in visitors, higher tiers first, and a new round starts once every waiting tier has used
+ * its share. With the default weights 8:4:2:1 a Basic visitor boards at least once per
+ * 15 boardings while anyone is waiting, so lower tiers never starve.
+ * Membership levels are matched ignoring case; unknown or missing levels queue as Standard.
+ * Each tier is its own line for tickets: ticketsAhead counts visitors ahead in the same tier.
+ * A visitor id may be queued in only one tier at a time, so lookups check the four tiers.
+ * Single-threaded like FifoVisitorQueue, except ticketOf and ticketsAhead which any thread
+ * may call. The credits of the current round are not part of a RideJournal, so a recovered
+ * queue starts a new round and may board in a different order than before the crash.
+ */
+public class TieredVisitorQueue extends VisitorQueue {
+    /** Tier names, highest first */
+    public static final String[] TIERS = {"Gold", "Silver", "Standard", "Basic"};
+    private static final int STANDARD = 2;
+    private static final int[] DEFAULT_WEIGHTS = {8, 4, 2, 1};
+    private static final int TIER_SHIFT = 56;  // Ticket = tier in the top byte, ticket within the tier below
+    private static final long TICKET_MASK = (1L << TIER_SHIFT) - 1;
+
+    private final FifoVisitorQueue[] tiers = new FifoVisitorQueue[TIERS.length];
+    private final int[] weights;
+    private final int[] credits;  // Boardings left for each tier in the current round
+    private final int totalWeight;
+    private int size;
+    private long lastPolledEnqueueNanos;
+
+    // Default constructor with weights Gold 8, Silver 4, Standard 2, Basic 1
+    public TieredVisitorQueue() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * Constructor with the boarding weight of each tier
+     * @param weights one weight per tier in TIERS order, each at least 1
+     */
+    public TieredVisitorQueue(int... weights) {
+        if (weights == null || weights.length != TIERS.length) {
+            throw new IllegalArgumentException("Expected " + TIERS.length + " tier weights (Gold, Silver, Standard, Basic)");
+        }
+        for (int weight : weights) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Tier weights must be at least 1: " + weight);
+            }
+        }
+        for (int i = 0; i < tiers.length; i++) {
+            tiers[i] = new FifoVisitorQueue();
+        }
+        this.weights = weights.clone();
+        this.credits = weights.clone();
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        this.totalWeight = total;
+    }
+
+    // Tier index of a membership level (0 = Gold)
+    public static int tierOf(String membershipLevel) {
+        if (membershipLevel != null) {
+            for (int i = 0; i < TIERS.length; i++) {
+                if (TIERS[i].equalsIgnoreCase(membershipLevel)) {
+                    return i;
+                }
+            }
+        }
+        return STANDARD;
+    }
+
+    @Override
+    public long offerTicket(Visitor visitor) {
+        if (visitor == null) {
+            throw new NullPointerException("Visitor cannot be null");
+        }
+        String id = idOf(visitor);
+        if (id != null && ticketOf(id) != NO_TICKET) {
+            return NO_TICKET;  // Already queued, possibly under another membership level
+        }
+        int tier = tierOf(visitor.getMembershipLevel());
+        long ticket = tiers[tier].offerTicket(visitor);
+        size++;
+        return ((long) tier << TIER_SHIFT) | ticket;
+    }
+
+    @Override
+    public Visitor poll() {
+        int tier = nextTier();
+        if (tier < 0) {
+            return null;
+        }
+        credits[tier]--;
+        size--;
+        Visitor visitor = tiers[tier].poll();
+        lastPolledEnqueueNanos = tiers[tier].lastPolledEnqueueNanos();
+        return visitor;
+    }
+
+    @Override
+    public Visitor peek() {
+        int tier = nextTier();
+        return (tier < 0) ? null : tiers[tier].peek();
+    }
+
+    // Highest waiting tier with credit left, starting a new round if none has any; -1 if empty
+    private int nextTier() {
+        if (size == 0) {
+            return -1;
+        }
+        for (int i = 0; i < tiers.length; i++) {
+            if (credits[i] > 0 && !tiers[i].isEmpty()) {
+                return i;
+            }
+        }
+        System.arraycopy(weights, 0, credits, 0, credits.length);
+        for (int i = 0; i < tiers.length; i++) {
+            if (!tiers[i].isEmpty()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long lastPolledEnqueueNanos() {
+        return lastPolledEnqueueNanos;
+    }
+
+    @Override
+    public long ticketOf(String visitorId) {
+        for (int tier = 0; tier < tiers.length; tier++) {
+            long ticket = tiers[tier].ticketOf(visitorId);
+            if (ticket != NO_TICKET) {
+                return ((long) tier << TIER_SHIFT) | ticket;
+            }
+        }
+        return NO_TICKET;
+    }
+
+    @Override
+    public boolean removeVisitor(String visitorId) {
+        for (FifoVisitorQueue tier : tiers) {
+            if (tier.removeVisitor(visitorId)) {
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Visitors ahead in the ticket's own tier
+    @Override
+    public long ticketsAhead(long ticket) {
+        return tiers[(int) (ticket >>> TIER_SHIFT)].ticketsAhead(ticket & TICKET_MASK);
+    }
+
+    // The tier's weight over the sum of weights (more when higher tiers run empty)
+    @Override
+    public double boardingShare(long ticket) {
+        return (double) weights[(int) (ticket >>> TIER_SHIFT)] / totalWeight;
+    }
+
+    // Visitors waiting in one tier
+    public int getTierSize(int tier) {
+        return tiers[tier].size();
+    }
+
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        for (FifoVisitorQueue tier : tiers) {
+            tier.clear();
+        }
+        System.arraycopy(weights, 0, credits, 0, credits.length);
+        size = 0;
+    }
+
+    // Iterates tier by tier (Gold first), each tier in arrival order; not the exact boarding order
+    @Override
+    public Iterator<Visitor> iterator() {
+        return new Iterator<>() {
+            private int tier;
+            private Iterator<Visitor> current = tiers[0].iterator();
+            private Iterator<Visitor> lastIterator;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && tier < tiers.length - 1) {
+                    current = tiers[++tier].iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Visitor next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastIterator = current;
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                if (lastIterator == null) {
+                    throw new IllegalStateException();
+                }
+                lastIterator.remove();
+                lastIterator = null;
+                size--;
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.AbstractQueue;
+
+/**
+ * Base class of the ride waiting queues
+ * One entry in WAIT_SAMPLE_INTERVAL (by ticket) keeps the System.nanoTime() at which it was
+ * enqueued, so a ride can sample how long riders waited without allocating anything per
+ * visitor or reading the clock on every offer.
+ *
+ * Every entry also gets a ticket: a number that increases by one per visitor within a
+ * line (a queue may have several lines, e.g. one per membership tier). Each queue tracks
+ * the ticket at the head of every line, so the number of visitors ahead of a ticket is a
+ * subtraction that any thread may read while the queue is being drained. Visitors who
+ * leave from the middle of a line still count as ahead until the head passes their ticket,
+ * so a position is exact for strict FIFO boarding and otherwise an upper bound.
+ *
+ * Queues index their entries by visitor id: a visitor whose id is already queued is
+ * rejected, and finding or removing a visitor by id is O(1). Visitors with a null or blank
+ * id are queued but not indexed.
+ */
+public abstract class VisitorQueue extends AbstractQueue<Visitor> {
+    /** offerTicket result for a rejected duplicate, and ticketOf result for a visitor not queued */
+    public static final long NO_TICKET = -1;
+
+    /** lastPolledEnqueueNanos result for a visitor whose enqueue time was not sampled */
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /** Enqueue times are taken for tickets that are multiples of this (a power of two) */
+    public static final int WAIT_SAMPLE_INTERVAL = 8;
+
+    /**
+     * Enqueue a visitor
+     * @return the visitor's ticket (for ticketsAhead and boardingShare), or NO_TICKET if a
+     *         visitor with the same id is already queued
+     * @throws NullPointerException if visitor is null
+     */
+    public abstract long offerTicket(Visitor visitor);
+
+    // Returns false for a duplicate id
+    @Override
+    public boolean offer(Visitor visitor) {
+        return offerTicket(visitor) != NO_TICKET;
+    }
+
+    /**
+     * Enqueue time of the visitor returned by the last successful poll()
+     * Read on the polling thread right after poll(); undefined before the first poll.
+     * @return System.nanoTime() value taken when that visitor was offered, or NOT_TIMED
+     *         if the visitor's ticket was not sampled
+     */
+    public abstract long lastPolledEnqueueNanos();
+
+    /** Ticket of a queued visitor, or NO_TICKET; lock-free, safe from any thread */
+    public abstract long ticketOf(String visitorId);
+
+    /**
+     * Visitors ahead of a ticket in its line; lock-free, safe from any thread
+     * @return 0 for the next visitor to board, negative once the ticket has left the queue
+     */
+    public abstract long ticketsAhead(long ticket);
+
+    /**
+     * Share of each cycle's seats the ticket's line gets while every line has visitors
+     * waiting (1.0 for a single FIFO line)
+     */
+    public double boardingShare(long ticket) {
+        return 1.0;
+    }
+
+    /**
+     * Remove a visitor from anywhere in the queue in O(1)
+     * @return true if a visitor with this id was queued
+     */
+    public abstract boolean removeVisitor(String visitorId);
+
+    // Enqueue time to store for a ticket: the clock for sampled tickets, NOT_TIMED otherwise
+    static long enqueueNanos(long ticket) {
+        return ((ticket & (WAIT_SAMPLE_INTERVAL - 1)) == 0) ? System.nanoTime() : NOT_TIMED;
+    }
+
+    // Index key of a visitor: its id, or null when the id is null or blank
+    static String idOf(Visitor visitor) {
+        String id = visitor.getId();
+        return (id == null || id.isBlank()) ? null : id;
+    }
+}
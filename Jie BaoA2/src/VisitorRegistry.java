@@ -0,0 +1,100 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Park-wide registry of loaded Visitor instances, keyed by id (off unless setEnabled(true))
+ * When enabled, the CSV, binary, snapshot and journal loaders resolve visitors here, so a
+ * guest who appears in many imported files is one object instead of one per row. Identical
+ * visitors are then the same instance and Visitor.equals returns on its reference check,
+ * and memory grows with unique guests rather than with rows loaded.
+ *
+ * Only loaders use the registry: visitors passed to a ride by the caller are stored as they
+ * are, never swapped for a registered instance. An instance is only shared when every field
+ * (name, age, id, membership level, tickets) matches; a visitor whose fields differ replaces
+ * the registered one for later lookups. Entries are weak references, so guests no ride
+ * holds any more are collected. Loaded visitors are treated as values: changing one with
+ * a setter changes it for every ride that loaded it.
+ * Safe to use from any thread (parallel imports resolve concurrently).
+ */
+public final class VisitorRegistry {
+    private static final ConcurrentHashMap<String, Entry> visitors = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Visitor> collected = new ReferenceQueue<>();
+    private static volatile boolean enabled;
+
+    // Weak reference that remembers its key so it can be removed once collected
+    private static final class Entry extends WeakReference<Visitor> {
+        private final String id;
+
+        Entry(Visitor visitor, String id) {
+            super(visitor, collected);
+            this.id = id;
+        }
+    }
+
+    private VisitorRegistry() {
+    }
+
+    // Registered visitor with these fields, or a new (registered) one; used by the loaders
+    public static Visitor resolve(String name, int age, String id, String membershipLevel, int tickets) {
+        if (!enabled || id == null) {
+            return new Visitor(name, age, id, membershipLevel, tickets);
+        }
+        Visitor registered = lookup(id);
+        if (sameFields(registered, name, age, id, membershipLevel, tickets)) {
+            return registered;
+        }
+        Visitor visitor = new Visitor(name, age, id, membershipLevel, tickets);
+        register(visitor);
+        return visitor;
+    }
+
+    private static Visitor lookup(String id) {
+        Entry entry = visitors.get(id);
+        return (entry != null) ? entry.get() : null;
+    }
+
+    // Age and tickets first: cheap, and they differ most often between guests sharing an id.
+    // The id is compared too: a registered visitor may have been given a new id by setId.
+    private static boolean sameFields(Visitor registered, String name, int age, String id, String membershipLevel,
+                                      int tickets) {
+        return registered != null && registered.getAge() == age && registered.getTickets() == tickets
+                && Objects.equals(registered.getId(), id)
+                && Objects.equals(registered.getName(), name)
+                && Objects.equals(registered.getMembershipLevel(), membershipLevel);
+    }
+
+    private static void register(Visitor visitor) {
+        expungeCollected();
+        visitors.put(visitor.getId(), new Entry(visitor, visitor.getId()));
+    }
+
+    // Drops entries whose visitor has been collected (unless the id was registered again)
+    private static void expungeCollected() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            visitors.remove(entry.id, entry);
+        }
+    }
+
+    // Number of ids registered, including visitors not yet found to be collected
+    public static int size() {
+        expungeCollected();
+        return visitors.size();
+    }
+
+    public static void clear() {
+        visitors.clear();
+        expungeCollected();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Enable when many rides load the same guests; turning it off makes every load create its own instances
+    public static void setEnabled(boolean enabled) {
+        VisitorRegistry.enabled = enabled;
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Keyed sort in VisitorComparator order for large histories
+ * Each distinct name and membership level is ranked once, and each visitor gets a
+ * primitive sort key (name rank, age, membership rank). The sort then compares numbers
+ * instead of calling compareToIgnoreCase for every comparison.
+ * Name ranks follow compareToIgnoreCase exactly and the sort is stable, so the result is
+ * the order of List.sort(new VisitorComparator()).
+ * Histories of PARALLEL_THRESHOLD visitors or more are sorted with Arrays.parallelSort.
+ */
+final class VisitorSortKeys {
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /** Sort key of one visitor; index is the position before sorting */
+    private static final class Key {
+        final long nameAndAge;  // name rank in the high half, age (sign flipped) in the low half
+        final int membership;
+        final int index;
+
+        Key(int nameRank, int age, int membershipRank, int index) {
+            this.nameAndAge = ((long) nameRank << 32) | ((age ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            this.membership = membershipRank;
+            this.index = index;
+        }
+    }
+
+    private static final Comparator<Key> KEY_ORDER = (a, b) -> {
+        int compare = Long.compare(a.nameAndAge, b.nameAndAge);
+        return (compare != 0) ? compare : Integer.compare(a.membership, b.membership);
+    };
+
+    private VisitorSortKeys() {
+    }
+
+    // True when the comparator orders visitors exactly like VisitorComparator (subclasses may not)
+    static boolean isVisitorOrder(Comparator<?> comparator) {
+        return comparator != null && comparator.getClass() == VisitorComparator.class;
+    }
+
+    /**
+     * Sort visitors in place in VisitorComparator order
+     * @return false (and leaves the array untouched) when a visitor, name or membership level is
+     *         null; the caller then sorts with the comparator itself so null handling is unchanged
+     */
+    static boolean sort(Visitor[] visitors) {
+        Map<String, Integer> nameCodes = new HashMap<>();
+        Map<String, Integer> membershipCodes = new HashMap<>();
+        int[] names = new int[visitors.length];
+        int[] memberships = new int[visitors.length];
+        for (int i = 0; i < visitors.length; i++) {
+            Visitor visitor = visitors[i];
+            if (visitor == null || visitor.getName() == null || visitor.getMembershipLevel() == null) {
+                return false;
+            }
+            names[i] = code(nameCodes, visitor.getName());
+            memberships[i] = code(membershipCodes, visitor.getMembershipLevel());
+        }
+        int[] nameRanks = rankNames(toArray(nameCodes));
+        int[] membershipRanks = rankMemberships(toArray(membershipCodes));
+
+        int[] order = sortedOrder(visitors.length, i -> nameRanks[names[i]],
+                i -> visitors[i].getAge(), i -> membershipRanks[memberships[i]]);
+        Visitor[] sorted = new Visitor[visitors.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = visitors[order[i]];
+        }
+        System.arraycopy(sorted, 0, visitors, 0, sorted.length);
+        return true;
+    }
+
+    /**
+     * Stable order of n entries by (name rank, age, membership rank)
+     * When the ranks, the age range and the position fit in 63 bits (any history of up to
+     * about two million entries with ordinary ages), each entry is packed into one long with its
+     * position in the low bits and the long[] is sorted directly; equal keys then stay in
+     * position order. Otherwise Key objects are sorted with a stable merge sort.
+     * @return order[i] is the original position of the entry that sorts to position i
+     */
+    static int[] sortedOrder(int n, IntUnaryOperator nameRank, IntUnaryOperator age,
+                             IntUnaryOperator membershipRank) {
+        int maxName = 0;
+        int maxMembership = 0;
+        int minAge = Integer.MAX_VALUE;
+        int maxAge = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            maxName = Math.max(maxName, nameRank.applyAsInt(i));
+            maxMembership = Math.max(maxMembership, membershipRank.applyAsInt(i));
+            minAge = Math.min(minAge, age.applyAsInt(i));
+            maxAge = Math.max(maxAge, age.applyAsInt(i));
+        }
+        long secondaryRange = ((long) maxAge - minAge + 1) * (maxMembership + 1L);
+        int indexBits = bitsFor(n);
+        int secondaryBits = bitsFor(secondaryRange);
+        if (n == 0 || bitsFor(maxName + 1L) + secondaryBits + indexBits > 63) {
+            return sortedOrderByKeys(n, nameRank, age, membershipRank);
+        }
+
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            long secondary = ((long) age.applyAsInt(i) - minAge) * (maxMembership + 1L) + membershipRank.applyAsInt(i);
+            packed[i] = ((long) nameRank.applyAsInt(i) << (secondaryBits + indexBits))
+                    | (secondary << indexBits) | i;
+        }
+        if (n >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(packed);
+        } else {
+            Arrays.sort(packed);
+        }
+        int[] order = new int[n];
+        long indexMask = (1L << indexBits) - 1;
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) (packed[i] & indexMask);
+        }
+        return order;
+    }
+
+    private static int[] sortedOrderByKeys(int n, IntUnaryOperator nameRank, IntUnaryOperator age,
+                                           IntUnaryOperator membershipRank) {
+        Key[] keys = new Key[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = new Key(nameRank.applyAsInt(i), age.applyAsInt(i), membershipRank.applyAsInt(i), i);
+        }
+        // Both sorts are stable merge sorts, so equal keys keep their history order
+        if (n >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(keys, KEY_ORDER);
+        } else {
+            Arrays.sort(keys, KEY_ORDER);
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = keys[i].index;
+        }
+        return order;
+    }
+
+    /**
+     * Rank distinct names in compareToIgnoreCase order
+     * compareToIgnoreCase compares char by char after folding each char with
+     * toLowerCase(toUpperCase(c)), then by length, so for names without surrogate pairs the
+     * folded Strings sort with plain compareTo in the same order. Names with surrogates are
+     * compared by code point, so those sets are ranked with CASE_INSENSITIVE_ORDER itself.
+     * @param names distinct non-null names, indexed by code
+     * @return rank of each code; names equal ignoring case share a rank
+     */
+    static int[] rankNames(String[] names) {
+        String[] folded = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            folded[i] = fold(names[i]);
+            if (folded[i] == null) {
+                return rank(names, String.CASE_INSENSITIVE_ORDER);
+            }
+        }
+        String[] sorted = folded.clone();
+        Arrays.sort(sorted);
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String name : sorted) {
+            ranks.putIfAbsent(name, ranks.size());
+        }
+        int[] result = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = ranks.get(folded[i]);
+        }
+        return result;
+    }
+
+    // Case-folded copy of a name, or null if it contains a surrogate
+    private static String fold(String name) {
+        char[] chars = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return null;
+            }
+            char f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c) {
+                if (chars == null) {
+                    chars = name.toCharArray();
+                }
+                chars[i] = f;
+            }
+        }
+        return (chars == null) ? name : new String(chars);
+    }
+
+    // Rank distinct membership levels in String.compareTo order (as VisitorComparator does)
+    static int[] rankMemberships(String[] memberships) {
+        return rank(memberships, Comparator.naturalOrder());
+    }
+
+    private static int[] rank(String[] values, Comparator<String> order) {
+        Integer[] codes = new Integer[values.length];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = i;
+        }
+        Arrays.sort(codes, (a, b) -> order.compare(values[a], values[b]));
+        int[] ranks = new int[values.length];
+        int rank = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (i > 0 && order.compare(values[codes[i - 1]], values[codes[i]]) != 0) {
+                rank++;
+            }
+            ranks[codes[i]] = rank;
+        }
+        return ranks;
+    }
+
+    // Number of bits needed for values 0 .. count - 1
+    private static int bitsFor(long count) {
+        return (count <= 1) ? 0 : 64 - Long.numberOfLeadingZeros(count - 1);
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = codes.size();
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    private static String[] toArray(Map<String, Integer> codes) {
+        String[] values = new String[codes.size()];
+        for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+            values[entry.getValue()] = entry.getKey();
+        }
+        return values;
+    }
+}